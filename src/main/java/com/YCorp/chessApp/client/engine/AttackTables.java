@@ -0,0 +1,150 @@
+package com.YCorp.chessApp.client.engine;
+
+/**
+ * Precomputed non-sliding attack tables and square relation tables, stored as flat primitive long[] arrays.
+ *
+ * <p>
+ * Replaces the boxed {@link java.util.ArrayList}&lt;Long> masks in {@link Board} (ie. {@link Board#KNIGHT_MOVE}) on the<br>
+ * move generation and check evasion paths, so every lookup is a single array load with no unboxing. Sliding attacks<br>
+ * are handled by {@link MagicBitboard}.
+ * </p>
+ *
+ * <p>
+ * The square relation tables are indexed by <code>(a &lt;&lt; 6) | b</code> for two squares a and b:
+ * <ul>
+ * <li> {@link between}: squares strictly between a and b when they share a rank, file, diagonal or anti-diagonal,<br>
+ * 0 otherwise. Used for check blocking squares, pin detection and castling paths.</li>
+ * <li> {@link line}: every square on the full board-edge-to-board-edge line through a and b, including both, 0 if they<br>
+ * are not aligned. A pinned piece can only move along the line through its king and itself.</li>
+ * </ul>
+ * All tables are built once per JVM in the static initializer of this class, and use the RLERF encoding described in<br>
+ * {@link Board} (see <a href="Board.html#RLERF">RLERF encoding</a>).
+ * </p>
+ */
+public final class AttackTables {
+    public static final long[] KNIGHT = new long[64];
+    public static final long[] KING = new long[64];
+    /**
+     * Squares a white pawn on each square attacks. Unlike {@link Board#W_PAWN_ATTACK} this is also filled on the first rank,<br>
+     * so it can be used in reverse to find black pawns attacking a square there.
+     */
+    public static final long[] W_PAWN_ATTACK = new long[64];
+    /**
+     * Squares a black pawn on each square attacks, also filled on the last rank.
+     */
+    public static final long[] B_PAWN_ATTACK = new long[64];
+    /**
+     * Single and (from the second rank) double white pawn pushes, ignoring occupancy. Same as {@link Board#W_PAWN_MOVE}.
+     */
+    public static final long[] W_PAWN_PUSH = new long[64];
+    /**
+     * Single and (from the seventh rank) double black pawn pushes, ignoring occupancy. Same as {@link Board#B_PAWN_MOVE}.
+     */
+    public static final long[] B_PAWN_PUSH = new long[64];
+
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINE = new long[64 * 64];
+
+    private static final int[][] KNIGHT_OFFSETS = new int[][]{{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_OFFSETS = new int[][]{{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++){
+            int rank = square / 8;
+            int file = square % 8;
+            KNIGHT[square] = generateStepMask(rank, file, KNIGHT_OFFSETS);
+            KING[square] = generateStepMask(rank, file, KING_OFFSETS);
+            W_PAWN_ATTACK[square] = generateStepMask(rank, file, new int[][]{{1, -1}, {1, 1}});
+            B_PAWN_ATTACK[square] = generateStepMask(rank, file, new int[][]{{-1, -1}, {-1, 1}});
+            // Pawns never stand on their first rank and have promoted on their last
+            if ((rank > 0) && (rank < 7)){
+                W_PAWN_PUSH[square] = squareMask(square + 8) | ((rank == 1) ? squareMask(square + 16) : 0L);
+                B_PAWN_PUSH[square] = squareMask(square - 8) | ((rank == 6) ? squareMask(square - 16) : 0L);
+            }
+        }
+
+        // Walk each of the 8 directions from every square, every square reached is aligned with the origin
+        for (int a = 0; a < 64; a++){
+            for (int[] direction : KING_OFFSETS){
+                long path = 0L;
+                int rank = (a / 8) + direction[0];
+                int file = (a % 8) + direction[1];
+                while ((rank >= 0) && (rank < 8) && (file >= 0) && (file < 8)){
+                    int b = (rank * 8) + file;
+                    BETWEEN[(a << 6) | b] = path;
+                    path |= squareMask(b);
+                    rank += direction[0];
+                    file += direction[1];
+                }
+            }
+        }
+        for (int a = 0; a < 64; a++){
+            for (int b = 0; b < 64; b++){
+                if ((a != b) && (BETWEEN[(a << 6) | b] != 0 || (KING[a] & squareMask(b)) != 0)){
+                    LINE[(a << 6) | b] = generateLineMask(a, b);
+                }
+            }
+        }
+    }
+
+    private AttackTables(){}
+
+    //#region Lookups
+    /**
+     * Returns the squares strictly between two squares that share a rank, file, diagonal or anti-diagonal.
+     *
+     * @param a index of the first square in RLERF encoding.
+     * @param b index of the second square in RLERF encoding.
+     * @return long RLERF mask of the squares between a and b excluding both, 0 if they are adjacent or not aligned.
+     */
+    public static long between(int a, int b){
+        return BETWEEN[(a << 6) | b];
+    }
+
+    /**
+     * Returns the full line through two aligned squares, from board edge to board edge.
+     *
+     * @param a index of the first square in RLERF encoding.
+     * @param b index of the second square in RLERF encoding.
+     * @return long RLERF mask of the line through a and b including both, 0 if they are not aligned or equal.
+     */
+    public static long line(int a, int b){
+        return LINE[(a << 6) | b];
+    }
+    //#endregion
+
+    //#region Table generation
+    private static long squareMask(int square){
+        return (1L << (63 - square));
+    }
+
+    private static long generateStepMask(int rank, int file, int[][] offsets){
+        long retMask = 0L;
+        for (int[] offset : offsets){
+            int r = rank + offset[0];
+            int f = file + offset[1];
+            if ((r >= 0) && (r < 8) && (f >= 0) && (f < 8)){
+                retMask |= squareMask((r * 8) + f);
+            }
+        }
+        return retMask;
+    }
+
+    // Extends the a to b direction both ways until the board edge
+    private static long generateLineMask(int a, int b){
+        int rankStep = Integer.signum((b / 8) - (a / 8));
+        int fileStep = Integer.signum((b % 8) - (a % 8));
+        long retMask = squareMask(a);
+        for (int sign = -1; sign <= 1; sign += 2){
+            int rank = (a / 8) + (sign * rankStep);
+            int file = (a % 8) + (sign * fileStep);
+            while ((rank >= 0) && (rank < 8) && (file >= 0) && (file < 8)){
+                retMask |= squareMask((rank * 8) + file);
+                rank += sign * rankStep;
+                file += sign * fileStep;
+            }
+        }
+        return retMask;
+    }
+    //#endregion
+}
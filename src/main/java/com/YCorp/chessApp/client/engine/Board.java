@@ -1,9 +1,10 @@
 package com.YCorp.chessApp.client.engine;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ArrayDeque;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Iterator;
 
 
 import com.YCorp.chessApp.client.engine.Move.MOVE_TYPE;
@@ -66,35 +67,124 @@ public class Board {
     //#region Board state variables
     private long bitState; // Current occupancy map for the whole board
     private int[][] board; // True board representation
-    
-    private ArrayDeque<Move> playedMoves;
+
+    /**
+     * Per-piece occupancy bitboards in RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board}), indexed by<br>
+     * piece value + 6 so that -6 (black king) is index 0 and 6 (white king) is index 12. Index 6 (empty) is unused.
+     *
+     * <p>
+     * Kept in sync with {@link board} by {@link playMove} and {@link undoLastMove}, so move generation and attack<br>
+     * queries can iterate only the set bits of a piece type instead of scanning all 64 squares.
+     * </p>
+     */
+    private long[] pieceBitboards = new long[13];
+    /**
+     * Number of each piece on the board, indexed like {@link pieceBitboards}, and the matching material key built from<br>
+     * {@link Zobrist#material}. Only captures and promotions change them, so {@link playMove} and {@link makeMove}<br>
+     * update both there instead of counting the bitboards, see {@link addMaterial} and {@link removeMaterial}.
+     */
+    private int[] pieceCounts = new int[13];
+    private long materialKey;
+    private long whiteOcc; // Occupancy map for white pieces, union of the positive pieceBitboards
+    private long blackOcc; // Occupancy map for black pieces, union of the negative pieceBitboards
+    // Packed move buffer backing the ArrayList<int[]> generators, contents are only valid until the next generation call
+    private final int[] moveScratch = new int[MAX_MOVES];
+
+    /**
+     * Upper bound on the number of legal moves in any chess position (the known maximum is 218), used to size<br>
+     * the int[] buffers passed to the {@link PackedMove} move generation overloads.
+     */
+    public static final int MAX_MOVES = 256;
+    /**
+     * Move kinds for the staged generators, see {@link generateNoisyMoves} and {@link generateQuietMoves}.
+     */
+    private static final int GEN_NOISY = 1;
+    private static final int GEN_QUIET = 2;
+    private static final int GEN_ALL = GEN_NOISY | GEN_QUIET;
+    // Piece order tried by hasAnyLegalMove, cheapest target masks first
+    private static final int[] HAS_MOVE_ORDER = new int[]{2, 1, 3, 4, 5};
+
+    // SAN writing, see appendSan
+    private static final String SAN_PIECE_LETTERS = " PNBRQK";
+    private static final int SHARED_ANY = 1;
+    private static final int SHARED_RANK = 2;
+    private static final int SHARED_FILE = 4;
+    private final StringBuilder sanBuilder = new StringBuilder(8);
+
+    // Status codes returned by applySan
+    public static final int SAN_OK = 0;
+    public static final int SAN_MALFORMED = 1;
+    public static final int SAN_ILLEGAL = 2;
+    public static final int SAN_AMBIGUOUS = 3;
+
+    /**
+     * Destination square of the last move if it was a two square pawn push, -1 otherwise. Read by {@link generateEnPassentMask}.
+     */
+    private int doublePushSquare = -1;
+    /**
+     * Zobrist hash of the en passent file currently XOR'ed into {@link zobristHash}, 0 if no en passent is available.
+     */
+    private long epHash = 0L;
+
+    //#region Make/unmake undo stack
+    // Each makeMove records UNDO_INT_STRIDE ints and UNDO_LONG_STRIDE longs at undoDepth, unmakeMove pops them
+    private static final int UNDO_INT_STRIDE = 5;  // packed move, captured piece, castling bits, half clock, double push square
+    private static final int UNDO_LONG_STRIDE = 2; // zobrist hash, en passent hash
+    private static final int UNDO_INITIAL_PLY = 256;
+    private int[] undoInts = new int[UNDO_INITIAL_PLY * UNDO_INT_STRIDE];
+    private long[] undoLongs = new long[UNDO_INITIAL_PLY * UNDO_LONG_STRIDE];
+    private int undoDepth = 0;
+    //#endregion
+
+    /**
+     * Every move played with {@link playMove} in {@link PackedMove} encoding, oldest first, with {@link playedMovesSize}<br>
+     * entries in use. A stored move costs 4 bytes instead of a {@link Move} object, Move views are only built on demand<br>
+     * by {@link peekMove} and {@link getMoveQueue}.
+     */
+    private int[] playedMoves = new int[UNDO_INITIAL_PLY];
+    private int playedMovesSize = 0;
     private ArrayDeque<Long> bitStateHistory;
     private ArrayDeque<int[][]> boardHistory;
     private ArrayDeque<BOARD_STATE> stateHistory;
-    private ArrayDeque<Long> zobristHistory;
     private ArrayDeque<Long> epHashHistory;
     private ArrayDeque<boolean[]> castlingHistory;
     private ArrayDeque<Integer> halfClockHistory;
     private ArrayList<String> algebraicHistory;
 
-    // These are not constants as they are unique to each Board instance, not consistent across all Boards
-    private long zobristHash; // Zobrist hash
-    private final long whiteLongHash;
-    private final long whiteShortHash;
-    private final long blackLongHash;
-    private final long blackShortHash;
+    /**
+     * Zobrist hash of the current position, built from the keys shared by all Boards in {@link Zobrist}.
+     */
+    private long zobristHash;
+
+    //#region Valid move cache
+    /**
+     * Packed legal moves of the current position, reused while the position is unchanged. Keyed by the hash,<br>
+     * ply ({@link zobristHistorySize}) and player the moves were generated for, and cleared by {@link invalidateValidMoves}<br>
+     * whenever the position is changed outside of the hash. {@link cachedValidMoves} is the ArrayList form returned by<br>
+     * {@link generateValidMoves(int)}, only built when asked for.
+     */
+    private int[] cachedMoves = new int[MAX_MOVES];
+    private int cachedMoveCount = -1; // -1 when nothing is cached
+    private long cachedMovesHash;
+    private int cachedMovesPly;
+    private int cachedMovesSign;
+    private ArrayList<int[]> cachedValidMoves = null;
+    //#endregion
 
-    private final long whiteTurnHash;
-    
+    //#region Repetition history
     /**
-     * Maps file index to a unique corresponding hash value used for Zobrist hashing.
+     * Zobrist hash after every played move, oldest first, with the starting position at index 0. Grown with<br>
+     * {@link Arrays#copyOf} as needed. Pushed by {@link updateZobrist} and {@link makeMove}, popped by {@link undoLastMove}<br>
+     * and {@link unmakeMove}.
      */
-    private final Map<Integer, Long> epHashTable;
+    private long[] zobristHistory = new long[UNDO_INITIAL_PLY];
+    private int zobristHistorySize = 0;
     /**
-     * Maps each of the 12 unqique pieces to a 64 length long[], containing 64 unique hash<br>
-     * values for each board square, used for Zobrist hashing.
+     * Occurences of the current position in {@link zobristHistory}, including the current one, as of the last<br>
+     * {@link updateState} or {@link undoLastMove}. See {@link countRepetitions}.
      */
-    private final Map<Integer, long[]> zobristTable;
+    private int repetitionCount = 1;
+    //#endregion
 
     // Castling rights
     // Toggled to false if KING moves, or a Castling move is PLAYED
@@ -172,6 +262,9 @@ public class Board {
         ANTI_MOVE = generateAntiRayMask();
     }
 
+    // Starting position copied in place by reset
+    private static final int[][] FRESH_BOARD = generateFreshBoard();
+
     public final long W_CASTLE_SHORT = 0b0000011000000000000000000000000000000000000000000000000000000000L;
     public final long B_CASTLE_SHORT = 0b0000000000000000000000000000000000000000000000000000000000000110L;
     public final long W_CASTLE_LONG = 0b0011000000000000000000000000000000000000000000000000000000000000L;
@@ -181,46 +274,275 @@ public class Board {
     /**
      * Creates a "fresh" Board object whose state reflects that of a chess board at the start of a game.
      * <p>
-     * Generates random long values for attributes required for zobrist hashing, including the initial zobrist hash.
+     * Computes the initial zobrist hash from the shared {@link Zobrist} keys.
      * boardState is initialized with the starting chess position, bitState is initialized similarly with full occupancy on ranks 1, 2, 7, 8
      * 
      * 
      * @return A Board object representative of a 'fresh' chess board
      */
     public Board(){
-        // Generate fresh moves queue
-        playedMoves = new ArrayDeque<>();
-        zobristHistory = new ArrayDeque<>();
-        
-        boardHistory = new ArrayDeque<int[][]>();
-        bitStateHistory = new ArrayDeque<Long>();
-        castlingHistory = new ArrayDeque<boolean[]>();
-        epHashHistory = new ArrayDeque<Long>();
-        stateHistory = new ArrayDeque<BOARD_STATE>();
-        halfClockHistory = new ArrayDeque<Integer>();
-        algebraicHistory = new ArrayList<String>();
-
-
-        // Generate new zobrist hash
-        whiteLongHash = ThreadLocalRandom.current().nextLong();
-        whiteShortHash = ThreadLocalRandom.current().nextLong();
-        blackLongHash = ThreadLocalRandom.current().nextLong();
-        blackShortHash = ThreadLocalRandom.current().nextLong();
-        
-        whiteTurnHash = ThreadLocalRandom.current().nextLong();
-        epHashTable = generateEPHashTable();
-        
-        zobristTable = generateZobristTable();
-        
-        
+        initHistories();
+
         // Fresh bitboard
         bitState = 0xFFFF00000000FFFFL;
         
         // Populate freshboard
         board = generateFreshBoard();
-        
+        syncPieceBitboards();
+
         zobristHash = generateCurrentZobristHash();
-        zobristHistory.push(zobristHash);
+        pushZobristHistory(zobristHash);
+    }
+
+    /**
+     * Creates a Board object whose state reflects the position described by the provided FEN string.
+     *
+     * <p>
+     * Reads piece placement, side to move, castling rights, en passent target square and half clock. The full move<br>
+     * number is accepted but not tracked. The position has no {@link playedMoves}, so {@link undoLastMove} cannot go<br>
+     * back past it. Used by {@link Perft} to set up reference positions.
+     * </p>
+     * @param fen Forsyth-Edwards Notation string, the half clock and full move fields are optional.
+     * @throws IllegalArgumentException if the piece placement or side to move fields are malformed.
+     */
+    public Board(String fen){
+        this();
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if ((fields.length < 2) || (ranks.length != 8)){
+            throw new IllegalArgumentException("Board(): Invalid FEN " + fen);
+        }
+
+        //#region Piece placement
+        int[][] newBoard = new int[8][8];
+        long newBitState = 0L;
+        for (int i = 0; i < 8; i++){
+            int rank = 7 - i; // FEN lists rank 8 first
+            int file = 0;
+            for (char c : ranks[i].toCharArray()){
+                if (Character.isDigit(c)){
+                    file += c - '0';
+                    continue;
+                }
+                int piece = "PNBRQK".indexOf(Character.toUpperCase(c)) + 1;
+                if ((piece == 0) || (file > 7)){
+                    throw new IllegalArgumentException("Board(): Invalid FEN piece placement " + fields[0]);
+                }
+                newBoard[rank][file] = Character.isUpperCase(c) ? piece : -piece;
+                newBitState |= (1L << (63 - ((rank * 8) + file)));
+                file++;
+            }
+        }
+        this.board = newBoard;
+        this.bitState = newBitState;
+        syncPieceBitboards();
+        //#endregion
+
+        if (!(fields[1].equals("w") || fields[1].equals("b"))){
+            throw new IllegalArgumentException("Board(): Invalid FEN side to move " + fields[1]);
+        }
+        this.whitesTurn = fields[1].equals("w");
+
+        String castling = (fields.length > 2) ? fields[2] : "-";
+        this.whiteShort = castling.contains("K");
+        this.whiteLong = castling.contains("Q");
+        this.blackShort = castling.contains("k");
+        this.blackLong = castling.contains("q");
+
+        // The FEN en passent target is the square behind the pushed pawn
+        if ((fields.length > 3) && !fields[3].equals("-")){
+            int target = ((fields[3].charAt(1) - '1') * 8) + (fields[3].charAt(0) - 'a');
+            this.doublePushSquare = ((target / 8) == 2) ? target + 8 : target - 8;
+        }
+        this.halfClock = (fields.length > 4) ? Integer.parseInt(fields[4]) : 0;
+
+        initLoadedPosition();
+    }
+
+    /**
+     * Creates a Board object at the position held by the provided {@link Position} snapshot.
+     *
+     * <p>
+     * The board array is filled from the snapshot's piece bitboards, every other value is copied as is. Like the FEN<br>
+     * constructor the Board has no history before the snapshot, so {@link undoLastMove} cannot go back past it and the<br>
+     * repetition count starts over.
+     * </p>
+     * @param position the snapshot to rebuild, ie. from {@link toPosition}.
+     */
+    public Board(Position position){
+        this();
+        int[][] newBoard = new int[8][8];
+        long newBitState = 0L;
+        for (int piece = -6; piece <= 6; piece++){
+            long pieces = position.getPieceBitboard(piece);
+            newBitState |= pieces;
+            while (pieces != 0){
+                int square = 63 - Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                newBoard[square / 8][square % 8] = piece;
+            }
+        }
+        this.board = newBoard;
+        this.bitState = newBitState;
+        syncPieceBitboards();
+
+        this.whitesTurn = position.isWhitesTurn();
+        setCastlingBits(position.getCastlingBits());
+        this.doublePushSquare = position.getDoublePushSquare();
+        this.halfClock = position.getHalfClock();
+
+        initLoadedPosition();
+    }
+
+    /**
+     * Sets the check state, en passent hash and zobrist hash of a position loaded by the FEN or {@link Position}<br>
+     * constructors, once the board, turn, castling rights, en passent square and half clock are in place.
+     */
+    private void initLoadedPosition(){
+        if (isInCheck(getTurnInt())){
+            this.state = BOARD_STATE.CHECK;
+        }
+
+        // Rebuild the hash for the new position, en passent is only hashed when it can actually be played
+        long epMask = getPlayerEPMask(getTurnInt());
+        this.epHash = (epMask != 0) ? Zobrist.enPassent((63 - Long.numberOfTrailingZeros(epMask)) % 8) : 0L;
+        this.epHashHistory.clear();
+        this.epHashHistory.push(this.epHash);
+        this.zobristHistorySize = 0;
+        this.zobristHash = generateCurrentZobristHash();
+        pushZobristHistory(this.zobristHash);
+    }
+
+    /**
+     * Exports the current position as an immutable {@link Position} snapshot, which can be handed to other threads<br>
+     * or kept as a map key while this Board carries on. Rebuild it with {@link Board(Position)}.
+     *
+     * @return a new {@link Position} of the current position.
+     */
+    public Position toPosition(){
+        return new Position(this.pieceBitboards, this.whiteOcc, this.blackOcc, this.whitesTurn, getCastlingBits(), this.doublePushSquare,
+                            this.halfClock, this.zobristHash);
+    }
+
+    /**
+     * Creates an independent copy of the source Board's current position, see {@link copy}.
+     */
+    private Board(Board source){
+        initHistories();
+
+        this.board = deepCloneBoard(source.board);
+        this.bitState = source.bitState;
+        this.pieceBitboards = source.pieceBitboards.clone();
+        this.whiteOcc = source.whiteOcc;
+        this.blackOcc = source.blackOcc;
+        this.pieceCounts = source.pieceCounts.clone();
+        this.materialKey = source.materialKey;
+
+        this.whiteLong = source.whiteLong;
+        this.whiteShort = source.whiteShort;
+        this.blackLong = source.blackLong;
+        this.blackShort = source.blackShort;
+        this.WLF = source.WLF;
+        this.WSF = source.WSF;
+        this.BLF = source.BLF;
+        this.BSF = source.BSF;
+        this.threeFoldDrawAvailable = source.threeFoldDrawAvailable;
+        this.fiftyMoveDrawAvailable = source.fiftyMoveDrawAvailable;
+        this.halfClock = source.halfClock;
+        this.whitesTurn = source.whitesTurn;
+        this.state = source.state;
+        this.doublePushSquare = source.doublePushSquare;
+        this.epHash = source.epHash;
+        this.epHashHistory.push(this.epHash);
+        this.zobristHash = source.zobristHash;
+        this.repetitionCount = source.repetitionCount;
+
+        // Only positions since the last capture or pawn move can still repeat, older hashes are left behind
+        int kept = Math.min(source.zobristHistorySize, source.halfClock + 1);
+        if (kept > this.zobristHistory.length){
+            this.zobristHistory = new long[Integer.highestOneBit(kept) << 1];
+        }
+        System.arraycopy(source.zobristHistory, source.zobristHistorySize - kept, this.zobristHistory, 0, kept);
+        this.zobristHistorySize = kept;
+    }
+
+    // The collection backed histories used by playMove, updateState and undoLastMove
+    private void initHistories(){
+        this.boardHistory = new ArrayDeque<int[][]>();
+        this.bitStateHistory = new ArrayDeque<Long>();
+        this.castlingHistory = new ArrayDeque<boolean[]>();
+        this.epHashHistory = new ArrayDeque<Long>();
+        this.stateHistory = new ArrayDeque<BOARD_STATE>();
+        this.halfClockHistory = new ArrayDeque<Integer>();
+        this.algebraicHistory = new ArrayList<String>();
+    }
+
+    /**
+     * Creates an independent copy of this Board at its current position, sharing no mutable state with it.
+     *
+     * <p>
+     * Forks a position for parallel search and perft root splits (see {@link Perft}) or for "what if" analysis,<br>
+     * without replaying the moves that led to it. The board, bitboards, castling rights, en passent square, half clock,<br>
+     * state, draw flags and hash are copied, along with the zobrist history since the last capture or pawn move, which<br>
+     * is all {@link countRepetitions} reads. The undo histories, algebraic history and make/unmake undo stack are not,<br>
+     * so the copy cannot undo past the fork and keeps no record of the moves before it.
+     * </p>
+     * <p>
+     * Must not be called while another thread is modifying this Board.
+     * </p>
+     * @return a new Board at the same position.
+     */
+    public Board copy(){
+        return new Board(this);
+    }
+
+    /**
+     * Returns this Board to the start of a game, in the same state as a newly constructed {@link Board()}.
+     *
+     * <p>
+     * Lets one Board be reused for many games, ie. by {@link GameReplayer} when validating a game database. The board<br>
+     * array is overwritten in place, and the histories, undo stack and move buffers are emptied but keep their capacity,<br>
+     * so resetting a Board that has already replayed a long game allocates nothing.
+     * </p>
+     */
+    public void reset(){
+        this.playedMovesSize = 0;
+        this.boardHistory.clear();
+        this.bitStateHistory.clear();
+        this.castlingHistory.clear();
+        this.epHashHistory.clear();
+        this.stateHistory.clear();
+        this.halfClockHistory.clear();
+        this.algebraicHistory.clear();
+
+        for (int i = 0; i < 8; i++){
+            System.arraycopy(FRESH_BOARD[i], 0, this.board[i], 0, 8);
+        }
+        this.bitState = 0xFFFF00000000FFFFL;
+        syncPieceBitboards();
+
+        this.whiteLong = true;
+        this.whiteShort = true;
+        this.blackLong = true;
+        this.blackShort = true;
+        this.WLF = false;
+        this.WSF = false;
+        this.BLF = false;
+        this.BSF = false;
+        this.threeFoldDrawAvailable = false;
+        this.fiftyMoveDrawAvailable = false;
+        this.halfClock = 0;
+        this.whitesTurn = true;
+        this.state = BOARD_STATE.IN_PLAY;
+        this.doublePushSquare = -1;
+        this.epHash = 0L;
+        this.undoDepth = 0;
+        this.repetitionCount = 1;
+        invalidateValidMoves();
+
+        this.zobristHistorySize = 0;
+        this.zobristHash = generateCurrentZobristHash();
+        pushZobristHistory(this.zobristHash);
     }
 
     //#region Base ray generation -----------------------------------------------------------------------------------------------------------
@@ -789,27 +1111,8 @@ public class Board {
      * @return Primitive long value representing occupancy mask for the specified player's pieces.
      */
     public long generatePlayerPieceMask(int piece){
-        long retMask = 0L;
-        //Rank
-        for (int i = 0; i < 8; i++){
-            //File
-            for (int j = 0; j < 8; j++){
-                if (piece < 0){
-                    if (this.board[i][j] < 0){
-                        int bitPos = (i * 8) + j;
-                        retMask |= (1L << (63 - bitPos));
-                    }
-                }
-                else {
-                    if (this.board[i][j] > 0){
-                        int bitPos = (i * 8) + j;
-                        retMask |= (1L << (63 - bitPos));
-                    }
-                }
-            }
-        }
-
-        return retMask;
+        // Colour occupancy is maintained incrementally alongside the piece bitboards
+        return (piece < 0) ? this.blackOcc : this.whiteOcc;
     }
 
     /**
@@ -819,20 +1122,14 @@ public class Board {
      * Used in the generation of Queen and Rook moves. 'Blocked capture' means the mask allows the capture of the first 
      * encountered blocking piece regardless of ownership, but can move no further. Takes into account blocking piece locations on the Board object
      * calling the method, and blocks the rays accordingly. 
-     * Uses {@link hypQuint} to calculate the blocked squares of the rays, and performs a bitwise OR
-     * operation to combine the vertical and horizontal ray.
+     * Uses the precomputed rook table in {@link MagicBitboard} to look up the blocked vertical and horizontal<br>
+     * rays in a single access, instead of blocking each ray with {@link hypQuint}.
      * </p>
      * @param position denotes the specific square that the mask is generated for, corresponding to RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board})
      * @return Primitive long value representing the 'blocked capture' straight ray mask for provided square, in RLERF encoding.
      */
     public long generateValidStraightRayMask(int position){
-        long retBoard = 0L;
-        long pieceMask = (1L << (63 - position));
-
-        retBoard |= hypQuint(this.bitState, HORIZONTAL_RAY.get(position / 8), pieceMask);
-        retBoard |= hypQuint(this.bitState, VERTICAL_RAY.get(position % 8), pieceMask);
-
-        return retBoard;
+        return MagicBitboard.rookAttacks(position, this.bitState);
     }
 
     /**
@@ -842,20 +1139,14 @@ public class Board {
      * Used in the generation of Queen and Bishop moves. 'Blocked capture' means the mask allows the capture of the first 
      * encountered blocking piece regardless of ownership, but can move no further. Takes into account blocking piece locations on the Board object
      * calling the method, and blocks the rays accordingly. 
-     * Uses {@link hypQuint} to calculate the blocked squares of the rays, and performs a bitwise OR
-     * operation to combine the diag and anti-diag ray.
+     * Uses the precomputed bishop table in {@link MagicBitboard} to look up the blocked diagonal and anti-diagonal<br>
+     * rays in a single access, instead of blocking each ray with {@link hypQuint}.
      * </p>
      * @param position denotes the specific square that the mask is generated for, corresponding to RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board})
      * @return Primitive long value representing the 'blocked capture' diagonal ray mask for provided square, in RLERF encoding.
      */
     public long generateValidDiagonalRayMask(int position){
-        long retBoard = 0L;
-        long pieceMask = (1L << (63 - position));
-
-        retBoard |= hypQuint(this.bitState, DIAGONAL_MOVE.get(position), pieceMask);
-        retBoard |= hypQuint(this.bitState, ANTI_MOVE.get(position), pieceMask);
-
-        return retBoard;
+        return MagicBitboard.bishopAttacks(position, this.bitState);
     }
 
     /**
@@ -865,24 +1156,21 @@ public class Board {
      * Used in the generation of Queen moves. 'Blocked capture' means the mask allows the capture of the first 
      * encountered blocking piece regardless of ownership, but can move no further. Takes into account blocking piece locations on the Board object
      * calling the method, and blocks the rays accordingly. 
-     * Uses {@link generateValidDiagonalRayMask} and {@link generateValidStraightRayMask} to generate bishop and rook masks,
-     * and performs a bitwise OR operation to combine all four rays (vertical, horizontal, diagonal, antidiagonal)
+     * Uses {@link MagicBitboard#queenAttacks} to look up the bishop and rook masks and combine all four rays<br>
+     * (vertical, horizontal, diagonal, antidiagonal) with a bitwise OR.
      * </p>
      * 
      * @param position denotes the specific square that the mask is generated for, corresponding to RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board})
      * @return long value representing the 'blocked capture' all ray mask for provided square, in RLERF encoding.
      */
     public long generateValidAllRayMask(int position){
-        long retBoard = generateValidStraightRayMask(position);
-        retBoard |= generateValidDiagonalRayMask(position);
-
-        return retBoard;
+        return MagicBitboard.queenAttacks(position, this.bitState);
     }
 
         // Checks for:
     //  - Piece attack pattern given origin square
-    //  - Sliding piece blocking (hypQuint)
-    //  - Opponent occupancy in attacked square (Mask comparison for non-sliders, hypQuint for sliding pieces)
+    //  - Sliding piece blocking (MagicBitboard lookup)
+    //  - Opponent occupancy in attacked square (Mask comparison for non-sliders, magic lookup for sliding pieces)
     //  - Friendly occupancy invalidating self-captures
     // Does not check for:
     //  - Forcing moves (Different method is invoked to find valid check escape moves)
@@ -924,7 +1212,7 @@ public class Board {
                 break;
             case 2:
                 // Invaldiate self captures
-                retMask |= (KNIGHT_MOVE.get(origin) ^ (friendlyOcc & KNIGHT_MOVE.get(origin)));
+                retMask |= (AttackTables.KNIGHT[origin] & ~friendlyOcc);
                 break;
             case 3:
                 // Invalidate bishop self-captures
@@ -946,10 +1234,10 @@ public class Board {
                 // If king is currently in check, we must remove the king's position from the valid moves as XORing with opponent vision in this case
                 // will flip the king position to 1
                 if ((opponentVision & kingPosMask) != 0){
-                    retMask |= (KING_MOVE.get(origin) & ~friendlyOcc) & ~opponentVision & ~kingPosMask;
+                    retMask |= (AttackTables.KING[origin] & ~friendlyOcc) & ~opponentVision & ~kingPosMask;
                 }
                 else {
-                    retMask |= (KING_MOVE.get(origin) & ~friendlyOcc) & ~opponentVision;
+                    retMask |= (AttackTables.KING[origin] & ~friendlyOcc) & ~opponentVision;
                 }
                 break;
         }
@@ -978,7 +1266,7 @@ public class Board {
             }
             else {
                 // Pawn can move forward 1 even if the 2nd square is blocked
-                return W_PAWN_MOVE.get(origin) & ~this.bitState;
+                return AttackTables.W_PAWN_PUSH[origin] & ~this.bitState;
             }
         }
         else if ((playerSign) < 0 && (rank == 6)){
@@ -987,11 +1275,11 @@ public class Board {
                 return 0L;
             }
             else {
-                return B_PAWN_MOVE.get(origin) & ~this.bitState;
+                return AttackTables.B_PAWN_PUSH[origin] & ~this.bitState;
             }
         }
         else {
-            return (playerSign > 0) ? (W_PAWN_MOVE.get(origin) & ~this.bitState) : (B_PAWN_MOVE.get(origin) & ~this.bitState);
+            return (playerSign > 0) ? (AttackTables.W_PAWN_PUSH[origin] & ~this.bitState) : (AttackTables.B_PAWN_PUSH[origin] & ~this.bitState);
         }
 
     }
@@ -1012,10 +1300,10 @@ public class Board {
         long retMask = 0L;
         if (playerSign > 0){
             // Valid attacks are ones with opponents on the destination square
-            retMask |= (W_PAWN_ATTACK.get(origin) & opponentOcc);
+            retMask |= (AttackTables.W_PAWN_ATTACK[origin] & opponentOcc);
         }
         else {
-            retMask |= (B_PAWN_ATTACK.get(origin) & opponentOcc);
+            retMask |= (AttackTables.B_PAWN_ATTACK[origin] & opponentOcc);
         }
 
         return retMask | generateEnPassentMask(playerSign, origin);
@@ -1025,10 +1313,10 @@ public class Board {
      * Generates a bitmask representing the provided player's pieces' vision.
      * 
      * <p>
-     * Similar to generatePieceAttackMask but with cut down logic. Scans the calling Board object's boardState
-     * attribute for pieces belonging to the player, and generates their vision using the corresponding sliding
-     * and non-sliding piece mask generators. This vision mask undergoes bitwise OR with the return value, and
-     * after scanning the board the accumulated return value is returned.
+     * Similar to generatePieceAttackMask but with cut down logic. Iterates the set bits of the player's {@link pieceBitboards}<br>
+     * one piece type at a time, and generates their vision using the corresponding sliding and non-sliding piece mask<br>
+     * generators. This vision mask undergoes bitwise OR with the return value, and after all piece types are visited<br>
+     * the accumulated return value is returned.
      * </p>
      * 
      * <p>
@@ -1048,73 +1336,51 @@ public class Board {
         // Possible attack moves for all pieces constitute vision on the king and castling path
         // No self-check avoidance required
         // For king: No vision avoidance required
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                int bitInd = (i * 8) + j;
-                int piece = this.board[i][j];
-                if ((playerSign > 0) && (piece > 0)){
-                    switch (piece){
-                        // Pawn attack
-                        case 1: 
-                            // No occupancy check required for vision
-                            // If enemy piece exists, the enemy king cannot move there, if it doesn't exist, the square is in vision
-                            // If a piece exists, they cannot castle anyways, if it doesn't exist, they can't castle as its in vision
-                            // Additionally, if friendly piece is captured by enemy, it is now in vision (prevents king captures)
-                            retMask |= W_PAWN_ATTACK.get(bitInd);
-                            break;
-                        // Knight
-                        case 2:
-                            // No need for occupancy check once again
-                            retMask |= KNIGHT_MOVE.get(bitInd);
-                            break;
-                        // Bishop
-                        case 3:
-                            // Sliding pieces still require ray blocker calculations
-                            // However don't require piece checking at destination
-                            retMask |= generateValidDiagonalRayMask(bitInd);
-                            break;
-                        // Rook
-                        case 4:
-                            retMask |= generateValidStraightRayMask(bitInd);
-                            break;
-                        // Queen
-                        case 5:
-                            retMask |= generateValidAllRayMask(bitInd);
-                            break;
-                        // King
-                        case 6:
-                            // No need to check for opponent vision, 
-                            // no need to check for occupancy for same reasons
-                            retMask |= KING_MOVE.get(bitInd);
-                            break;
-                    } 
-                    // KINGS vision counts as vision
-                }
-                // Same logic for Black vision
-                else if ((playerSign < 0) && (piece < 0)){
-                    switch (piece){
-                        case -1: 
-                            retMask |= B_PAWN_ATTACK.get(bitInd);
-                            break;
-                        case -2:
-                            retMask |= KNIGHT_MOVE.get(bitInd);
-                            break;
-                        case -3:
-                            retMask |= generateValidDiagonalRayMask(bitInd);
-                            break;
-                        case -4:
-                            retMask |= generateValidStraightRayMask(bitInd);
-                            break;
-                        case -5:
-                            retMask |= generateValidAllRayMask(bitInd);
-                            break;
-                        case -6:
-                            retMask |= KING_MOVE.get(bitInd);
-                            break;
-                    } 
-                }
-            }
+        int sign = (playerSign > 0) ? 1 : -1;
+        long bitboard;
+
+        // Pawn attack
+        // No occupancy check required for vision
+        // If enemy piece exists, the enemy king cannot move there, if it doesn't exist, the square is in vision
+        // If a piece exists, they cannot castle anyways, if it doesn't exist, they can't castle as its in vision
+        // Additionally, if friendly piece is captured by enemy, it is now in vision (prevents king captures)
+        long[] pawnAttack = (sign > 0) ? AttackTables.W_PAWN_ATTACK : AttackTables.B_PAWN_ATTACK;
+        bitboard = getPieceBitboard(sign);
+        while (bitboard != 0){
+            retMask |= pawnAttack[63 - Long.numberOfTrailingZeros(bitboard)];
+            bitboard &= bitboard - 1;
+        }
+
+        // Knight, no need for occupancy check once again
+        bitboard = getPieceBitboard(2 * sign);
+        while (bitboard != 0){
+            retMask |= AttackTables.KNIGHT[63 - Long.numberOfTrailingZeros(bitboard)];
+            bitboard &= bitboard - 1;
+        }
+
+        // Sliding pieces still require ray blocker calculations
+        // However don't require piece checking at destination
+        // Queens are included with both bishops and rooks, as queen vision is the union of the two
+        bitboard = getPieceBitboard(3 * sign) | getPieceBitboard(5 * sign);
+        while (bitboard != 0){
+            retMask |= generateValidDiagonalRayMask(63 - Long.numberOfTrailingZeros(bitboard));
+            bitboard &= bitboard - 1;
+        }
+
+        bitboard = getPieceBitboard(4 * sign) | getPieceBitboard(5 * sign);
+        while (bitboard != 0){
+            retMask |= generateValidStraightRayMask(63 - Long.numberOfTrailingZeros(bitboard));
+            bitboard &= bitboard - 1;
+        }
+
+        // King, no need to check for opponent vision or occupancy for same reasons
+        // KINGS vision counts as vision
+        bitboard = getPieceBitboard(6 * sign);
+        while (bitboard != 0){
+            retMask |= AttackTables.KING[63 - Long.numberOfTrailingZeros(bitboard)];
+            bitboard &= bitboard - 1;
         }
+
         return retMask;
     }
 
@@ -1124,78 +1390,20 @@ public class Board {
      * Generates a bitmask representing a straight ray between two squares on the chess board.
      * 
      * <p>
-     * Determines what type of ray based on provided origin and destination, then "builds" a 
-     * ray by setting each bit and incrementing the index according to the ray direction until
-     * it reaches the destination, which is not set.
+     * Looks the squares between origin and destination up in {@link AttackTables#between} and adds the origin square,<br>
+     * so a checking slider can be either captured or blocked.
      * </p>
      * @param origin represents the origin square of the ray as the index of the square in a RLERF encoded bitboard (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
      * @param destination represents the destination square of the ray as the index of the square in a RLERF encoded bitboard.
      * @return long value representing the isolated raymask, including the origin square but not the destination square, in RLERF format.
      */
     public static long generateEvasionPath(int origin, int destination){
-        int direction;
-
-        int originRank = origin / 8;
-        int originFile = origin % 8;
-        int originDiag = origin % 9;
-        int originAnti = origin% 7;
-        int destRank = destination / 8;
-        int destFile = destination % 8;
-        int destDiag = destination % 9;
-        int destAnti = destination % 7;
-
         // Ensure two points lie on the same ray
-        if (!((originRank == destRank) || (originFile == destFile) || (originAnti == destAnti) || (originDiag == destDiag))){
+        if (AttackTables.line(origin, destination) == 0){
             System.out.print("Invalid origin and destination squares for evasion path generation");
             return 0L;
         }
-
-        // Straight path
-        if (originRank == destRank){
-            // Right straight path
-            if (destination > origin){
-                direction = 1;
-            }
-            // left straight path
-            else {
-                direction = -1;
-            }
-        }
-        else if (originFile == destFile){
-            // Straight up
-            if (destination > origin){
-                direction = 8;
-            }
-            // Straight down
-            else {
-                direction = -8;
-            }
-        }
-        // Up-right diagonal
-        else if ((destRank > originRank) && (destFile > originFile)){
-            direction = 9;
-        }
-        // Up-left diagonal
-        else if ((destRank > originRank) && (destFile < originFile)){
-            direction = 7;
-        }
-        // Down-right diagonal
-        else if ((destRank < originRank) && (destFile > originFile)){
-            direction = -7;
-        }
-        else {
-            direction = -9;
-        }
-
-        long pos = (1L << (63 - origin));
-        long retMask = (1L << (63 - origin));
-        long endMask = (1L << (63 - destination));
-
-        while ((pos = shift(pos, direction)) != endMask){
-            retMask |= pos;
-        }
-
-        return retMask;
+        return AttackTables.between(origin, destination) | (1L << (63 - origin));
     }
     
     // Returns a one-bit enpassent mask
@@ -1206,7 +1414,8 @@ public class Board {
      * 
      * <p>
      * Mask is generated by checking each possible pawn attack square for the provided origin square for an enemy pawn
-     * that had just moved last turn two squares forward.
+     * that had just moved last turn two squares forward. The last double pawn push is tracked in {@link doublePushSquare}<br>
+     * so this works the same whether the last move was played with {@link playMove} or {@link makeMove}.
      * </p>
      * @param playerSign int whose sign represents the player owning the pawn, positive for white, negative for black
      * @param origin represents the position of the piece as the index of the square in a RLERF encoded bitboard (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
@@ -1216,63 +1425,54 @@ public class Board {
     public long generateEnPassentMask(int playerSign, int origin){
         int rank = origin / 8;
         int file = origin % 8;
-        Move lastMove = this.playedMoves.peek();
-        // return 0L if move is null
-        if (lastMove == null){return 0L;}
-        int lastMovePiece = lastMove.getPiece();
-        int lastMoveDestBit = lastMove.getDestBit();
-        int lastMoveRankDiff = Math.abs(lastMove.getOriginRank() - lastMove.getDestinationRank());
-        
+        // return 0L if the last move was not a double pawn push
+        if (this.doublePushSquare < 0){return 0L;}
+
         int opponentPawn = (playerSign > 0) ? -1 : 1;
         int rightAttackShift = (playerSign > 0) ? 9 : -7;
         int leftAttackShift = (playerSign > 0) ? 7 : -9;
         int epRank = (playerSign > 0) ? 4 : 3;
         
-        // Return 0L if:
-        // - Last move was not enemy pawn move
-        // - Current rank is not eligible for EP
-        if ((rank != epRank) || (Math.abs(lastMovePiece) != 1)){return 0L;}
-
-        long retMask = 0L;
-
-       
-        // Left border, only check right EP
-        if (file == 0){
-            int rightPiece = this.board[rank][file + 1];
-            int rightSquare = (rank * 8) + file + 1;
-            //       If piece == pawn                  Check correct pawn,           2 squares 'forward'
-            if ((rightPiece == opponentPawn) && (lastMoveDestBit == rightSquare) && (lastMoveRankDiff > 1)){
-                retMask |= (1L << (63 - (origin + rightAttackShift))); // Return with the right-forward attack mask
-            }
-            
+        // Return 0L if current rank is not eligible for EP, or the pushed pawn is not beside this one
+        if ((rank != epRank) || ((this.doublePushSquare / 8) != rank) || (this.board[rank][this.doublePushSquare % 8] != opponentPawn)){
+            return 0L;
         }
-        // Right border, only check left EP
-        else if (file == 7){
-            int leftPiece = this.board[rank][file - 1];
-            int leftSquare = (rank * 8) + file - 1;
 
-            if ((leftPiece == opponentPawn) && (lastMoveDestBit == leftSquare) && (lastMoveRankDiff > 1)){
-                retMask |= (1L << (63 - (origin + leftAttackShift))); // Return with the left-forward attack mask
-            }
+        int fileDiff = (this.doublePushSquare % 8) - file;
+        if (fileDiff == 1){
+            return (1L << (63 - (origin + rightAttackShift))); // Right-forward attack mask
         }
-        // Middle, check both side EP
-        else {
-            int leftPiece = this.board[rank][file -1];
-            int rightPiece = this.board[rank][file + 1];
+        else if (fileDiff == -1){
+            return (1L << (63 - (origin + leftAttackShift))); // Left-forward attack mask
+        }
+        return 0L;
+    }
 
-            int leftSquare = (rank * 8) + file - 1;
-            int rightSquare = leftSquare + 2;
+    /**
+     * Returns the destination square of the last move if it was a pawn moving two ranks, -1 otherwise.<br>
+     * Used to rebuild {@link doublePushSquare} whenever {@link playedMoves} is changed.
+     */
+    private int lastMoveDoublePushSquare(){
+        int lastMove = lastPlayedMove();
+        if ((lastMove == 0) || (Math.abs(PackedMove.getPiece(lastMove)) != 1) ||
+            (Math.abs(PackedMove.getOrigin(lastMove) - PackedMove.getDestination(lastMove)) != 16)){
+            return -1;
+        }
+        return PackedMove.getDestination(lastMove);
+    }
 
-            if ((leftPiece == opponentPawn) && (lastMoveDestBit == leftSquare) && (lastMoveRankDiff > 1)){
-                retMask |= (1L << (63 - (origin + leftAttackShift))); // Add the left-forward attack mask
-            }
-            else if ((rightPiece == opponentPawn) && (lastMoveDestBit == rightSquare) && (lastMoveRankDiff > 1)){
-                retMask |= (1L << (63 - (origin + rightAttackShift))); // Add the right-forward attack mask
-            }
+    /**
+     * Returns the last move in {@link playedMoves}, 0 if there is none (a valid packed move is never 0).
+     */
+    private int lastPlayedMove(){
+        return (this.playedMovesSize > 0) ? this.playedMoves[this.playedMovesSize - 1] : 0;
+    }
 
+    private void pushPlayedMove(int move){
+        if (this.playedMovesSize == this.playedMoves.length){
+            this.playedMoves = Arrays.copyOf(this.playedMoves, this.playedMoves.length * 2);
         }
-
-        return retMask;
+        this.playedMoves[this.playedMovesSize++] = move;
     }
     
     
@@ -1280,7 +1480,6 @@ public class Board {
 
     //#region Move list generation-----------------------------------------------------------------------------------------------------------
     // Move generation for FORCING check states
-    // Must also account for Self-checking as this is a move generator
     // Returns list of valid piece moves as int[]{piece, origin, destination}
     // If no moves exist, then checkmate
     /**
@@ -1288,13 +1487,10 @@ public class Board {
      * of the checking piece.
      * 
      * <p>
-     * First determines whether it is a single check or more than a single check. If only one check then the<br>
-     * moves list for all pieces are returned. Otherwise only king moves are returned as king moves are the<br>
-     * only way to escape double/triple(rare) checks. Possible king moves are generated using {@link generatePieceAttackMask}<br>
-     * which already invalidates king moves into enemy vision. Piece check evasion moves are filtered by generating all<br>
-     * possible moves for each piece, and selecting the moves whose destination square lies on the 'checking path'<br>
-     * between the checking piece and the king, or the square on which the single checking piece resides. Finally<br>
-     * the moves that result in a self-check through discovered check are removed from the returned move lists.
+     * Check evasion is handled by the same legal move generator as every other position (see {@link generateLegalMoves}),<br>
+     * where the check mask restricts non-king moves to capturing or blocking a single checker, and double checks only<br>
+     * produce king moves. This method only remains as an entry point for callers that know the player is in check,<br>
+     * if the player is not in check the full legal move list is returned.
      * </p>
      * 
      * <p>
@@ -1306,126 +1502,460 @@ public class Board {
      * @return an ArrayList&lt;int[]> containing the information for each valid check evasion move.
      */
     public ArrayList<int[]> generateCheckEvasionMoves(int playerSign){
-        ArrayList<int[]> retArray = new ArrayList<>();
-        int kingPos = findKingBitPosition(playerSign);
-        ArrayList<int[]> checks = getOpponentChecks(playerSign);
-        int playerKing = (playerSign > 0) ? 6 : -6;
-
-
-        // Iterate through all possible king moves to find ones that evade check
-        // (KingMove XOR FriendlyPieceMask) XOR OpponentVision
-        // King moves already account for opponent vision and friendly occupancy
-        long kingMoves = generatePieceAttackMask(playerKing, kingPos);
-        ArrayList<Integer> validSquares = getSetBitPositions(kingMoves);
-        for (int i : validSquares){
-            retArray.add(new int[]{playerKing, kingPos, i});
-        }
-
-        // Add other piece moves for single check, otherwise skip
-        if (!(checks.size() > 1)){
-            // SINGLE check:
-            // Find Enemy pieces and paths checking king
-            // checks should only contain ONE check at this point
-            int checkingPiece = checks.get(0)[0];
-            int checkingPos = checks.get(0)[1];
-    
-            // Differentiate between Sliding vs non pieces.
-                // Non-sliding pieces MUST be captured, their piecemask is the only valid evasion square
-                // Sliding pieces can be blocked along their attack path or captured
-                // Sliding pieces are > 2
-            long evasionMask = (Math.abs(checkingPiece) > 2) ? generateEvasionPath(checkingPos, kingPos) : (1L << (63 - checkingPos));
-    
-            // Iterate through players pieces to find ones that can block or capture
-            int evasionPiece;
-            int square;
-            long combinedMask;
-            for (int i = 0; i < 8; i++){
-                for (int j = 0; j < 8; j++){
-                    evasionPiece = this.board[i][j];
-                    square = (i * 8) + j;
-    
-                    // Skip king as we've already calculated it
-                    if (Math.abs(evasionPiece) == 6){continue;}
-    
-                    // Ensuring we find the same players pieces
-                    if ((evasionPiece * playerSign) > 0){
-                        // Find where along the attack path a piece could block (incl capture)
-                        // Since pawns move and attack differently, we must first combine the valid move and attack masks since either are eligible
-                        // for check blocking
-                        if (Math.abs(evasionPiece) == 1){
-                            // Combine valid pawn moves and attacks, then filter using evasion mask
-                            // generatePieceAttackMasks returns valid en passent as well
-                            // generateEnPassentMask() will only return a non 0 value IF the checking move was an eligible double pawn forward.
-                            //      - Pawn double move check: Will only return non-zero IF current pawn can en passent it
-                            //      - Other checks: returns 0L;
-                            combinedMask = (generatePieceAttackMask(evasionPiece, square) | generatePawnMoveMask(evasionPiece, square)) & (evasionMask | generateEnPassentMask(playerSign, square));
-                        }
-                        else {
-                            combinedMask = generatePieceAttackMask(evasionPiece, square) & evasionMask;
-                        }
-                        if (combinedMask != 0){
-                            for (int pos : getSetBitPositions(combinedMask)){
-                                retArray.add(new int[] {evasionPiece, square, pos});
-                            }
-                        }
-                    }
-                }
-            }    
-        }// endif
-        
-        // Remove self-checking positions
-        ArrayList<int[]> retArrayFinal = removeSelfCheckingMoves(playerSign, retArray);
-        return retArrayFinal;
+        return generateValidMoves(playerSign);
     }
 
-    // Returns an ArrayList<int[]> with int[] containing pieceID, origin, destination
-    // These are all existing checks against player with playerSign
     /**
-     * Generates an {@link ArrayList} of current checks for the provided player's opponent using the boardState <br>
-     * of the calling {@link Board} object.
-     * 
+     * Allocation-free overload of {@link generateCheckEvasionMoves(int)}, writing {@link PackedMove} encoded moves into<br>
+     * the provided buffer starting at index 0.
+     *
+     * @param playerSign int whose sign represents the player owning the pawn, positive for white, negative for black.
+     * @param moves buffer of at least {@link MAX_MOVES} length that the packed moves are written into.
+     * @return the number of moves written into the buffer.
+     */
+    public int generateCheckEvasionMoves(int playerSign, int[] moves){
+        return generateLegalMoves(playerSign, moves);
+    }
+
+    /**
+     * Generates every legal move for the given player in a single pass, without playing any candidate moves.
+     *
      * <p>
-     * The returned moves aren't actually valid moves, they just denote which piece(s) are currently<br>
-     * checking the provided player's king. This is done by isolating the player's king position and<br>
-     * iterating through the associated board to search for opponents pieces whose attack path includes the <br>
-     * king's position, resulting in a check. Self-check filtering is not required here as the moves can't <br>
-     * actually be "played" on the board.
+     * Legality is decided with two masks computed once per position:
+     * <ul>
+     * <li> Check mask: all squares if the king is not in check, the checker square plus the squares between a sliding<br>
+     * checker and the king for a single check, and no squares for a double check (only the king may move).</li>
+     * <li> Pin rays: for every enemy slider that would attack the king if exactly one friendly piece were removed, that<br>
+     * friendly piece is pinned and may only move along the ray between the king and the pinning piece (including its capture).</li>
+     * </ul>
+     * King moves are validated against enemy attacks computed with the king removed from the occupancy, so the king<br>
+     * cannot step backwards along the ray of a slider that is checking it. En passent is the one move that removes two<br>
+     * pieces from a rank at once, so it is validated separately by recomputing slider attacks on the king with both pawns<br>
+     * moved (covers the horizontal discovered check when the king, both pawns and an enemy rook share a rank).
      * </p>
-     * 
+     *
      * <p>
-     * The format of the returned ArrayList&lt;int[]> is that each entry in the ArrayList is a separate move described by the <br>
-     * contained int[]{piece, origin, destination}. This information is used to describe all current checks on the player by <br>
-     * their opponent.
+     * Moves are written into the provided buffer as {@link PackedMove} ints with their {@link MOVE_TYPE} already resolved.<br>
+     * Pawn moves to the last rank are written once per promotion piece (queen, rook, bishop, knight). Nothing is allocated,<br>
+     * so callers can reuse one buffer per ply.
      * </p>
-     * 
-     * @param playerSign int whose sign represents the player being checked, whose opponents checking moves<br>
-     * are returned in this method.
-     * @return an ArrayList&lt;int[]> containing all current opponent checking moves (effectively checks).
+     *
+     * @param playerSign int whose sign represents the player whose legal moves are generated, positive for white, negative for black.
+     * @param moves buffer of at least {@link MAX_MOVES} length that the packed moves are written into, starting at index 0.
+     * @return the number of moves written into the buffer, zero for checkmate or stalemate.
      */
-    public ArrayList<int[]> getOpponentChecks(int playerSign){
-        ArrayList<int[]> retChecks = new ArrayList<>();
-        int kingPos = findKingBitPosition(playerSign);
-        long kingMask = (1L << (63 - kingPos));
-        // Iterate through board looking for opponent's pieces
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                int square = (i * 8) + j;
-                // If player and piece are opponents
-                // Piece sign never changes throughout, so only one of these ORs will ever be true
-                int piece = this.board[i][j];
-                if (((piece < 0) && (playerSign > 0)) || ((piece > 0) && (playerSign < 0))){
-                    if ((kingMask & generatePieceAttackMask(piece, square)) != 0){
-                        retChecks.add(new int[]{piece, square, kingPos});
-                    }
-                }
-            }
-        }
-        return retChecks;
+    private int generateLegalMoves(int playerSign, int[] moves){
+        return generateLegalMoves(playerSign, moves, GEN_ALL, ~0L);
     }
 
-    //#region Unused overload of getOpponentChecks
-    // Overloaded parameters to check for checks in candidate board states, not the current board state
-    // /**
+    /**
+     * Generates the legal moves of one kind, optionally only for the pieces on the provided squares.
+     *
+     * <p>
+     * Same generator as {@link generateLegalMoves(int, int[])}, the kind only filters the destination masks:
+     * <ul>
+     * <li> {@link GEN_NOISY}: captures, en passent and every promotion, including non-capturing ones.</li>
+     * <li> {@link GEN_QUIET}: every other move, including castling.</li>
+     * <li> {@link GEN_ALL}: both, in the same order as {@link generateLegalMoves(int, int[])}.</li>
+     * </ul>
+     * </p>
+     * @param originMask RLERF mask of the squares whose pieces are generated, ~0L for every piece.
+     */
+    private int generateLegalMoves(int playerSign, int[] moves, int genType, long originMask){
+        int count = 0;
+        int sign = (playerSign > 0) ? 1 : -1;
+        int playerKing = 6 * sign;
+        int kingPos = findKingBitPosition(sign);
+        if (kingPos < 0){
+            return count;
+        }
+        long kingMask = (1L << (63 - kingPos));
+        long friendlyOcc = generatePlayerPieceMask(sign);
+        long opponentOcc = generatePlayerPieceMask(-sign);
+        long opponentDiagonal = getPieceBitboard(-3 * sign) | getPieceBitboard(-5 * sign);
+        long opponentStraight = getPieceBitboard(-4 * sign) | getPieceBitboard(-5 * sign);
+        int promotionRank = (sign > 0) ? 7 : 0;
+        long promotionRankMask = (sign > 0) ? 0xFFL : 0xFF00000000000000L;
+        boolean noisy = (genType & GEN_NOISY) != 0;
+        boolean quiet = (genType & GEN_QUIET) != 0;
+        // Destinations kept for each kind, promotions are noisy whether or not they capture
+        long pieceFilter = (noisy ? opponentOcc : 0L) | (quiet ? ~opponentOcc : 0L);
+        long pawnFilter = (noisy ? (opponentOcc | promotionRankMask) : 0L) | (quiet ? ~(opponentOcc | promotionRankMask) : 0L);
+
+        long checkers = attackersTo(kingPos, -sign);
+        long checkMask = generateCheckMask(kingPos, checkers);
+
+        //#region King moves
+        // Enemy attacks are evaluated with the king lifted off the board so it can't hide behind itself on a checking ray
+        long kingTargets = ((originMask & kingMask) != 0) ? (AttackTables.KING[kingPos] & ~friendlyOcc & pieceFilter) : 0L;
+        long kinglessOcc = this.bitState & ~kingMask;
+        while (kingTargets != 0){
+            int dest = 63 - Long.numberOfTrailingZeros(kingTargets);
+            long destMask = kingTargets & -kingTargets;
+            kingTargets &= kingTargets - 1;
+            // A captured piece on the destination no longer attacks anything
+            if ((attackersTo(dest, -sign, kinglessOcc) & ~destMask) == 0){
+                MOVE_TYPE type = ((destMask & opponentOcc) != 0) ? MOVE_TYPE.ATTACK : MOVE_TYPE.MOVE;
+                moves[count++] = PackedMove.pack(playerKing, kingPos, dest, type);
+            }
+        }
+
+        // Double check, only king moves are possible
+        if (checkMask == 0){
+            return count;
+        }
+
+        // Castling is only possible out of check
+        if ((checkers == 0) && quiet && ((originMask & kingMask) != 0)){
+            count = generateValidCastlingMoves(sign, moves, count);
+        }
+        //#endregion
+
+        long pinned = generatePinnedMask(kingPos, friendlyOcc, opponentOcc, opponentStraight, opponentDiagonal);
+
+        //#region Piece moves
+        long pieces = friendlyOcc & ~kingMask & originMask;
+        long[] pawnAttack = (sign > 0) ? AttackTables.W_PAWN_ATTACK : AttackTables.B_PAWN_ATTACK;
+        while (pieces != 0){
+            int square = 63 - Long.numberOfTrailingZeros(pieces);
+            long squareMask = pieces & -pieces;
+            pieces &= pieces - 1;
+            int piece = this.board[square / 8][square % 8];
+            boolean isPawn = Math.abs(piece) == 1;
+            long targets;
+
+            switch (Math.abs(piece)){
+                case 1:
+                    targets = generatePawnMoveMask(sign, square) | (pawnAttack[square] & opponentOcc);
+                    break;
+                case 2:
+                    targets = AttackTables.KNIGHT[square];
+                    break;
+                case 3:
+                    targets = generateValidDiagonalRayMask(square);
+                    break;
+                case 4:
+                    targets = generateValidStraightRayMask(square);
+                    break;
+                default:
+                    targets = generateValidAllRayMask(square);
+                    break;
+            }
+
+            targets &= ~friendlyOcc & checkMask & (isPawn ? pawnFilter : pieceFilter);
+            // A pinned piece can only move along the line through its king, the pinning slider stops it going further
+            if ((pinned & squareMask) != 0){
+                targets &= AttackTables.line(kingPos, square);
+            }
+
+            while (targets != 0){
+                int dest = 63 - Long.numberOfTrailingZeros(targets);
+                boolean capture = ((targets & -targets) & opponentOcc) != 0;
+                targets &= targets - 1;
+                if (isPawn && ((dest / 8) == promotionRank)){
+                    MOVE_TYPE type = capture ? MOVE_TYPE.PROMOTE_ATTACK : MOVE_TYPE.PROMOTE_MOVE;
+                    // Queen first, so callers that only look at one promotion see the most common one
+                    for (int promotion = 5; promotion > 1; promotion--){
+                        moves[count++] = PackedMove.pack(piece, square, dest, type, promotion);
+                    }
+                }
+                else {
+                    moves[count++] = PackedMove.pack(piece, square, dest, capture ? MOVE_TYPE.ATTACK : MOVE_TYPE.MOVE);
+                }
+            }
+
+            // En passent, validated by replaying the capture on the occupancy and testing sliders against the king
+            if (isPawn && noisy){
+                int dest = legalEnPassentDestination(sign, square, kingPos, checkMask, opponentStraight, opponentDiagonal);
+                if (dest >= 0){
+                    moves[count++] = PackedMove.pack(piece, square, dest, MOVE_TYPE.EN_PASSENT);
+                }
+            }
+        }
+        //#endregion
+
+        return count;
+    }
+
+    /**
+     * Determines whether the given player has at least one legal move, without generating the move list.
+     *
+     * <p>
+     * Uses the same check mask and pin rays as {@link generateLegalMoves}, but returns as soon as one legal destination<br>
+     * is found. King moves are tried first, then knights, pawns, bishops, rooks and queens, so in almost every position<br>
+     * only the first few pieces are looked at. Castling is never needed: a legal castle implies the king can legally<br>
+     * step to the square next to it. En passent, the only move needing a second occupancy test, is tried last.
+     * </p>
+     *
+     * <p>
+     * Intended for game end detection where only checkmate or stalemate matters, ie. the '#' suffix in {@link appendSan}<br>
+     * and {@link GameReplayer#evaluateState}. Use {@link generateValidMoves(int, int[])} when the moves themselves are needed.
+     * </p>
+     *
+     * @param playerSign int whose sign represents the player tested, positive for white, negative for black.
+     * @return true if the player has any legal move, false for checkmate or stalemate.
+     */
+    public boolean hasAnyLegalMove(int playerSign){
+        int sign = (playerSign > 0) ? 1 : -1;
+        int kingPos = findKingBitPosition(sign);
+        if (kingPos < 0){
+            return false;
+        }
+        long kingMask = (1L << (63 - kingPos));
+        long friendlyOcc = generatePlayerPieceMask(sign);
+
+        // King moves, enemy attacks are evaluated with the king lifted off the board as in generateLegalMoves
+        long kingTargets = AttackTables.KING[kingPos] & ~friendlyOcc;
+        long kinglessOcc = this.bitState & ~kingMask;
+        while (kingTargets != 0){
+            int dest = 63 - Long.numberOfTrailingZeros(kingTargets);
+            long destMask = kingTargets & -kingTargets;
+            kingTargets &= kingTargets - 1;
+            if ((attackersTo(dest, -sign, kinglessOcc) & ~destMask) == 0){
+                return true;
+            }
+        }
+
+        long checkMask = generateCheckMask(kingPos, attackersTo(kingPos, -sign));
+        // Double check, only king moves were possible
+        if (checkMask == 0){
+            return false;
+        }
+
+        long opponentOcc = generatePlayerPieceMask(-sign);
+        long opponentDiagonal = getPieceBitboard(-3 * sign) | getPieceBitboard(-5 * sign);
+        long opponentStraight = getPieceBitboard(-4 * sign) | getPieceBitboard(-5 * sign);
+        long pinned = generatePinnedMask(kingPos, friendlyOcc, opponentOcc, opponentStraight, opponentDiagonal);
+        long[] pawnAttack = (sign > 0) ? AttackTables.W_PAWN_ATTACK : AttackTables.B_PAWN_ATTACK;
+
+        // Cheapest pieces first, a knight's targets are a single table load
+        for (int absPiece : HAS_MOVE_ORDER){
+            long pieces = getPieceBitboard(absPiece * sign);
+            while (pieces != 0){
+                int square = 63 - Long.numberOfTrailingZeros(pieces);
+                long squareMask = pieces & -pieces;
+                pieces &= pieces - 1;
+                long targets;
+                switch (absPiece){
+                    case 1:
+                        targets = generatePawnMoveMask(sign, square) | (pawnAttack[square] & opponentOcc);
+                        break;
+                    case 2:
+                        targets = AttackTables.KNIGHT[square];
+                        break;
+                    case 3:
+                        targets = generateValidDiagonalRayMask(square);
+                        break;
+                    case 4:
+                        targets = generateValidStraightRayMask(square);
+                        break;
+                    default:
+                        targets = generateValidAllRayMask(square);
+                        break;
+                }
+                targets &= ~friendlyOcc & checkMask;
+                if ((pinned & squareMask) != 0){
+                    targets &= AttackTables.line(kingPos, square);
+                }
+                if (targets != 0){
+                    return true;
+                }
+            }
+        }
+
+        long pawns = getPieceBitboard(sign);
+        while (pawns != 0){
+            int square = 63 - Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if (legalEnPassentDestination(sign, square, kingPos, checkMask, opponentStraight, opponentDiagonal) >= 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the squares non-king moves must land on to resolve the checks given by the checkers mask: all squares if<br>
+     * the king is not in check, the checker square plus the squares between a sliding checker and the king for a single<br>
+     * check, and no squares for a double check.
+     */
+    private long generateCheckMask(int kingPos, long checkers){
+        if (checkers == 0){
+            return ~0L;
+        }
+        else if ((checkers & (checkers - 1)) == 0){
+            int checkerPos = 63 - Long.numberOfTrailingZeros(checkers);
+            int checkerPiece = Math.abs(this.board[checkerPos / 8][checkerPos % 8]);
+            // Sliding checkers can be blocked along their path or captured, non-sliders must be captured
+            return (checkerPiece > 2) ? (AttackTables.between(checkerPos, kingPos) | checkers) : checkers;
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the mask of friendly pieces pinned to the king. Enemy sliders that see the king when friendly pieces are<br>
+     * transparent are pinning candidates, and pin the single friendly piece between them and the king, if there is one.
+     */
+    private long generatePinnedMask(int kingPos, long friendlyOcc, long opponentOcc, long opponentStraight, long opponentDiagonal){
+        long pinned = 0L;
+        long snipers = (MagicBitboard.rookAttacks(kingPos, opponentOcc) & opponentStraight) |
+                       (MagicBitboard.bishopAttacks(kingPos, opponentOcc) & opponentDiagonal);
+        while (snipers != 0){
+            int sniperPos = 63 - Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = AttackTables.between(sniperPos, kingPos) & this.bitState;
+            // Exactly one blocker, and it is ours
+            if ((blockers != 0) && ((blockers & (blockers - 1)) == 0) && ((blockers & friendlyOcc) != 0)){
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Returns the destination of the pawn's en passent capture if it is legal, -1 otherwise. The capture must resolve<br>
+     * any check, and must not expose the king to a slider once both pawns have left their squares.
+     */
+    private int legalEnPassentDestination(int sign, int square, int kingPos, long checkMask, long opponentStraight, long opponentDiagonal){
+        long epMask = generateEnPassentMask(sign, square);
+        if (epMask == 0){
+            return -1;
+        }
+        int dest = 63 - Long.numberOfTrailingZeros(epMask);
+        long capturedMask = (1L << (63 - (dest - (8 * sign))));
+        // The capture must resolve any check, either by blocking on the destination or removing the checking pawn
+        if ((checkMask & (epMask | capturedMask)) == 0){
+            return -1;
+        }
+        long epOcc = (this.bitState ^ (1L << (63 - square)) ^ capturedMask) | epMask;
+        if (((MagicBitboard.rookAttacks(kingPos, epOcc) & opponentStraight) != 0) ||
+            ((MagicBitboard.bishopAttacks(kingPos, epOcc) & opponentDiagonal) != 0)){
+            return -1;
+        }
+        return dest;
+    }
+
+    /**
+     * Converts packed moves written by the allocation-free generators into the ArrayList&lt;int[]> format<br>
+     * of int[]{piece, origin, destination}.
+     *
+     * <p>
+     * The int[] format carries no promotion piece, so only the queen promotion of each promoting pawn move is kept,<br>
+     * matching the single int[] per pawn move that the ArrayList generators have always returned.
+     * </p>
+     * @param moves buffer of {@link PackedMove} encoded moves.
+     * @param count number of valid moves in the buffer.
+     * @return a new ArrayList&lt;int[]> holding one int[] per move.
+     */
+    private static ArrayList<int[]> unpackMoves(int[] moves, int count){
+        ArrayList<int[]> retArray = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            int move = moves[i];
+            if (PackedMove.isPromotion(move) && (Math.abs(PackedMove.getPromotionPiece(move)) != 5)){
+                continue;
+            }
+            retArray.add(PackedMove.toArray(move));
+        }
+        return retArray;
+    }
+
+    /**
+     * Generates a mask of every piece belonging to the attacking player that attacks the provided square in the<br>
+     * current position.
+     *
+     * <p>
+     * This is the query behind check detection, castling safety and {@link getOpponentChecks}, and costs five table<br>
+     * lookups regardless of how many pieces are on the board. See {@link attackersTo(int, int, long)}.
+     * </p>
+     * @param square index of the attacked square in RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
+     * @param attackerSign int whose sign represents the attacking player, positive for white, negative for black.
+     * @return long RLERF mask of the attacking player's pieces that attack the square.
+     */
+    public long attackersTo(int square, int attackerSign){
+        return attackersTo(square, attackerSign, this.bitState);
+    }
+
+    /**
+     * Generates a mask of every piece belonging to the attacking player that attacks the provided square,<br>
+     * given the provided board occupancy.
+     *
+     * <p>
+     * Uses reverse lookups: a knight on the square would attack exactly the squares knights can attack it from,<br>
+     * likewise for kings and sliding pieces. Pawns are looked up with the opposite colour's attack table.<br>
+     * The occupancy is a parameter so callers can test hypothetical positions (ie. the king lifted off the board)<br>
+     * without modifying {@link bitState}. Only sliding pieces are affected by it, the attackers themselves are always<br>
+     * taken from the piece bitboards.
+     * </p>
+     * @param square index of the attacked square in RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
+     * @param attackerSign int whose sign represents the attacking player, positive for white, negative for black.
+     * @param occupancy RLERF occupancy mask used to block sliding pieces.
+     * @return long RLERF mask of the attacking player's pieces that attack the square.
+     */
+    public long attackersTo(int square, int attackerSign, long occupancy){
+        int sign = (attackerSign > 0) ? 1 : -1;
+        // A pawn attacks the square from wherever a pawn of the other colour on the square would attack
+        long pawnSources = (sign > 0) ? AttackTables.B_PAWN_ATTACK[square] : AttackTables.W_PAWN_ATTACK[square];
+        long queens = getPieceBitboard(5 * sign);
+
+        return (pawnSources & getPieceBitboard(sign)) |
+               (AttackTables.KNIGHT[square] & getPieceBitboard(2 * sign)) |
+               (AttackTables.KING[square] & getPieceBitboard(6 * sign)) |
+               (MagicBitboard.bishopAttacks(square, occupancy) & (getPieceBitboard(3 * sign) | queens)) |
+               (MagicBitboard.rookAttacks(square, occupancy) & (getPieceBitboard(4 * sign) | queens));
+    }
+
+    // Used for castling paths, where only a couple of squares need testing and full opponent vision is wasted work
+    private boolean isAnySquareAttacked(long squares, int attackerSign){
+        while (squares != 0){
+            if (attackersTo(63 - Long.numberOfTrailingZeros(squares), attackerSign) != 0){
+                return true;
+            }
+            squares &= squares - 1;
+        }
+        return false;
+    }
+
+    // Returns an ArrayList<int[]> with int[] containing pieceID, origin, destination
+    // These are all existing checks against player with playerSign
+    /**
+     * Generates an {@link ArrayList} of current checks for the provided player's opponent using the boardState <br>
+     * of the calling {@link Board} object.
+     * 
+     * <p>
+     * The returned moves aren't actually valid moves, they just denote which piece(s) are currently<br>
+     * checking the provided player's king. The checking pieces are found with a single {@link attackersTo} query<br>
+     * on the king's square, so only the (at most two) checkers are visited. Self-check filtering is not required<br>
+     * here as the moves can't actually be "played" on the board.
+     * </p>
+     * 
+     * <p>
+     * The format of the returned ArrayList&lt;int[]> is that each entry in the ArrayList is a separate move described by the <br>
+     * contained int[]{piece, origin, destination}. This information is used to describe all current checks on the player by <br>
+     * their opponent.
+     * </p>
+     * 
+     * @param playerSign int whose sign represents the player being checked, whose opponents checking moves<br>
+     * are returned in this method.
+     * @return an ArrayList&lt;int[]> containing all current opponent checking moves (effectively checks).
+     */
+    public ArrayList<int[]> getOpponentChecks(int playerSign){
+        ArrayList<int[]> retChecks = new ArrayList<>(2);
+        int kingPos = findKingBitPosition(playerSign);
+        if (kingPos < 0){
+            return retChecks;
+        }
+        long checkers = attackersTo(kingPos, playerSign * -1);
+        while (checkers != 0){
+            int square = 63 - Long.numberOfTrailingZeros(checkers);
+            checkers &= checkers - 1;
+            retChecks.add(new int[]{this.board[square / 8][square % 8], square, kingPos});
+        }
+        return retChecks;
+    }
+
+    //#region Unused overload of getOpponentChecks
+    // Overloaded parameters to check for checks in candidate board states, not the current board state
+    // /**
     //  * An overloaded static method that generates an {@link ArrayList} of current checks for the provided player's<br>
     //  * opponent using the provided boardState parameter instead of the boardState of the calling {@link Board} object.
     //  * 
@@ -1478,7 +2008,8 @@ public class Board {
      * 
      * <p>
      * This is the final validator for possible moves on a given board for a given player. Accounts for self-checking<br>
-     * moves, forced check evasion moves, and valid castling moves. Returns a zero length ArrayList when no moves are<br>
+     * moves, forced check evasion moves, and valid castling moves through {@link generateLegalMoves}, which emits only<br>
+     * legal moves using pin and check masks rather than playing and filtering candidate moves. Returns a zero length ArrayList when no moves are<br>
      * possible, indicating either checkmate or stalemate. These conditions are accounted for in {@link evaluateGameEndConditions}.
      * </p>
      * <p>
@@ -1488,54 +2019,134 @@ public class Board {
      * 
      * @param playerSign int whose sign represents the player whose valid moves are being generated. Positive for white<br>
      * and negative for black.
+     * <p>
+     * The result is memoized per position, so {@link RegexParser#validateMove} and the {@link updateState}/{@link evaluateGameEndConditions}<br>
+     * calls that follow it generate each position's moves only once. The returned list is shared between those callers and<br>
+     * must not be modified.
+     * </p>
+     * 
      * @return an ArrayList&lt;int[]> containing all valid moves for the given player and associated Board object. Returns<br>
      * a zero length array in the case of checkmate or stalemate.
      */
     public ArrayList<int[]> generateValidMoves(int playerSign){
-        ArrayList<int[]> retArray = new ArrayList<>();
-        boolean shortCastleRights = (playerSign > 0) ? this.whiteShort : this.blackShort;
-        boolean longCastleRights = (playerSign > 0) ? this.whiteLong : this.blackLong;
-        
-        if (this.state == BOARD_STATE.CHECK){
-            // Already filters for self-checking moves
-            return generateCheckEvasionMoves(playerSign);
+        int count = cacheLegalMoves(playerSign);
+        if (this.cachedValidMoves == null){
+            this.cachedValidMoves = unpackMoves(this.cachedMoves, count);
         }
-        else {
-            // Generate possible moves using piece move masks, not checking for self-check
-            for (int i = 0; i < 8; i++){
-                for (int j = 0; j < 8; j++){
-                    int square = (i * 8) + j;
-                     int piece = this.board[i][j];
-
-                    if ((piece * playerSign) > 0){
-                        // Check if piece is a king, and if the player can castle at all
-                        if ((piece == 6 || piece == -6) && (shortCastleRights || longCastleRights)){
-                            // Add valid castling moves
-                            for (int[] move : generateValidCastlingMoves(playerSign)){
-                                retArray.add(move);
-                            };
-                        }
+        return this.cachedValidMoves;
+    }
 
-                        for (int pos : getSetBitPositions(generatePieceAttackMask(piece, square))){
-                            retArray.add(new int[] {piece, square, pos});
-                        }
-    
-                        // If pawn also add non-attack moves
-                        if (Math.abs(piece) == 1){
-                            for (int pos : getSetBitPositions(generatePawnMoveMask(piece,square))){
-                                retArray.add(new int[] {piece, square, pos});
-                            }
-                        }
-                    }
+    /**
+     * Makes sure {@link cachedMoves} holds the legal moves of the current position for the given player, generating<br>
+     * them only if the cache is empty or keyed to another position.
+     *
+     * @param playerSign int whose sign represents the player whose moves are cached.
+     * @return the number of moves in {@link cachedMoves}.
+     */
+    private int cacheLegalMoves(int playerSign){
+        int sign = (playerSign > 0) ? 1 : -1;
+        // Validating a move and updating the state after it both ask for the same position's moves
+        if ((this.cachedMoveCount >= 0) && (this.cachedMovesHash == this.zobristHash) &&
+            (this.cachedMovesPly == this.zobristHistorySize) && (this.cachedMovesSign == sign)){
+            return this.cachedMoveCount;
+        }
 
-                }
-            }
+        // Check evasion, pins and castling are all handled by the legal generator, no self-check filtering required
+        this.cachedMoveCount = generateLegalMoves(sign, this.cachedMoves);
+        this.cachedMovesHash = this.zobristHash;
+        this.cachedMovesPly = this.zobristHistorySize;
+        this.cachedMovesSign = sign;
+        this.cachedValidMoves = null;
+        return this.cachedMoveCount;
+    }
 
-            // Filter out self-checking moves
-            retArray = removeSelfCheckingMoves(playerSign, retArray);
-        }
+    /**
+     * Clears the cached result of {@link generateValidMoves(int)}, called by every method that changes the position<br>
+     * without (yet) changing {@link zobristHash}, ie. {@link playMove} which leaves the hash to {@link updateState}.
+     */
+    private void invalidateValidMoves(){
+        this.cachedMoveCount = -1;
+        this.cachedValidMoves = null;
+    }
 
-        return retArray;
+    /**
+     * Allocation-free overload of {@link generateValidMoves(int)}, writing every legal move for the given player into<br>
+     * the provided buffer as {@link PackedMove} ints starting at index 0.
+     *
+     * <p>
+     * Unlike the ArrayList&lt;int[]> version, each packed move carries its {@link MOVE_TYPE}, and promotions are written<br>
+     * once per promotion piece, so the result can be played directly with {@link PackedMove#toMove(int)}. Intended for<br>
+     * replay and search loops that keep one buffer per ply, so that generating a position produces no garbage.
+     * </p>
+     *
+     * @param playerSign int whose sign represents the player whose valid moves are being generated. Positive for white<br>
+     * and negative for black.
+     * @param moves buffer of at least {@link MAX_MOVES} length that the packed moves are written into.
+     * @return the number of moves written into the buffer, zero in the case of checkmate or stalemate.
+     */
+    public int generateValidMoves(int playerSign, int[] moves){
+        return generateLegalMoves(playerSign, moves);
+    }
+
+    /**
+     * Writes the legal captures, en passent captures and promotions of the given player into the provided buffer as<br>
+     * {@link PackedMove} ints starting at index 0.
+     *
+     * <p>
+     * Together with {@link generateQuietMoves} this splits {@link generateValidMoves(int, int[])} in two, so a staged<br>
+     * generator (see {@link MovePicker}) only pays for the quiet moves when the captures did not produce a cutoff, and<br>
+     * quiescence search never generates them. Non-capturing promotions are included here as they change the material.
+     * </p>
+     *
+     * @param playerSign int whose sign represents the player whose moves are generated. Positive for white and negative for black.
+     * @param moves buffer of at least {@link MAX_MOVES} length that the packed moves are written into.
+     * @return the number of moves written into the buffer.
+     */
+    public int generateNoisyMoves(int playerSign, int[] moves){
+        return generateLegalMoves(playerSign, moves, GEN_NOISY, ~0L);
+    }
+
+    /**
+     * Writes the legal non-capturing, non-promoting moves of the given player, including castling, into the provided<br>
+     * buffer as {@link PackedMove} ints starting at index 0. The complement of {@link generateNoisyMoves}.
+     *
+     * @param playerSign int whose sign represents the player whose moves are generated. Positive for white and negative for black.
+     * @param moves buffer of at least {@link MAX_MOVES} length that the packed moves are written into.
+     * @return the number of moves written into the buffer.
+     */
+    public int generateQuietMoves(int playerSign, int[] moves){
+        return generateLegalMoves(playerSign, moves, GEN_QUIET, ~0L);
+    }
+
+    /**
+     * Determines whether a packed move is legal for the player to move in the current position.
+     *
+     * <p>
+     * For moves that were not generated from this position, ie. transposition table and killer moves, which may come<br>
+     * from another position. Only the legal moves of the piece on the move's origin square are generated, and the move<br>
+     * must match one of them exactly, including its {@link MOVE_TYPE} and promotion piece.
+     * </p>
+     *
+     * @param move the packed move (see {@link PackedMove}), 0 or negative values are never legal.
+     * @return true if the move can be played with {@link makeMove} in the current position.
+     */
+    public boolean isLegalMove(int move){
+        if (move <= 0){
+            return false;
+        }
+        int origin = PackedMove.getOrigin(move);
+        int piece = PackedMove.getPiece(move);
+        if ((piece * getTurnInt() <= 0) || (this.board[origin / 8][origin % 8] != piece)){
+            return false;
+        }
+        int genType = PackedMove.isQuiet(move) ? GEN_QUIET : GEN_NOISY;
+        int count = generateLegalMoves(piece, this.moveScratch, genType, 1L << (63 - origin));
+        for (int i = 0; i < count; i++){
+            if (this.moveScratch[i] == move){
+                return true;
+            }
+        }
+        return false;
     }
 
     // Returns valid castling based on:
@@ -1570,12 +2181,26 @@ public class Board {
      * @return an ArrayList&lt;int[]> array containing all valid castling moves for the given player on the associated board.
      */
     public ArrayList<int[]> generateValidCastlingMoves(int playerSign){
-        ArrayList<int[]> retArray = new ArrayList<>();
-        // If the player whose turn it is can't castle, return an empty array (should not get here anyway)
+        int count = generateValidCastlingMoves(playerSign, this.moveScratch, 0);
+        return unpackMoves(this.moveScratch, count);
+    }
+
+    /**
+     * Allocation-free overload of {@link generateValidCastlingMoves(int)}, appending valid castling moves to the provided<br>
+     * buffer as {@link PackedMove} ints typed {@link MOVE_TYPE#CASTLE_SHORT} or {@link MOVE_TYPE#CASTLE_LONG}.
+     *
+     * @param playerSign int whose sign represents the player that castling moves are generated for, positive for white,<br>
+     * negative for black.
+     * @param moves buffer that the packed moves are written into.
+     * @param count index in the buffer at which the first castling move is written.
+     * @return the new number of moves in the buffer, count plus the number of castling moves written.
+     */
+    public int generateValidCastlingMoves(int playerSign, int[] moves, int count){
+        // If the player whose turn it is can't castle, write nothing (should not get here anyway)
         if (
             ((playerSign > 0) && !(whiteLong) && !(whiteShort)) || 
             ((playerSign < 0) && !(blackLong) && !(blackShort))){
-            return retArray;
+            return count;
         }
 
         int opponentSign;       // The sign of the opponent player, -1 for white 1 for black
@@ -1589,7 +2214,6 @@ public class Board {
         int shortCastleDest;    // King's destination square for short castle
         long shortCastleMask;   // King's path for short castle
         long longCastleMask; // King's path for long castle
-        long longRookMask; // Represents the square to the right of the long rook, needs to be unoccupied but not invisible
         // Set values based on player sign
         if (playerSign > 0){
             opponentSign = -1;
@@ -1602,7 +2226,6 @@ public class Board {
             kingSquare = 4;
             shortCastleMask = W_CASTLE_SHORT;
             longCastleMask = W_CASTLE_LONG;
-            longRookMask = (1L << (63 - 1));
         }
         else {
             opponentSign = 1;
@@ -1615,34 +2238,34 @@ public class Board {
             kingSquare = 60;
             shortCastleMask = B_CASTLE_SHORT;
             longCastleMask = B_CASTLE_LONG;
-            longRookMask = (1L << (63 - 57));
         }
 
 
-        // Check short castle validity
-        long opponentVision = generatePieceVision(opponentSign);
         // Determine long/short castling validity
-        // Check ROOK IS ON SQUARE && CASTLING PATH NOT IN OPPONENT VISION && CASTLING PATH NOT BLOCKED && KING ON PROPER SQUARE   
+        // Check RIGHT NOT LOST && ROOK IS ON SQUARE && KING ON PROPER SQUARE && SQUARES BETWEEN KING AND ROOK EMPTY && KING PATH NOT ATTACKED
+        // A rook that left its square and came back has lost its right, so the right must be checked per side
+        // The attack test is last as it is the only expensive one
+        // Long castle checks the whole king to rook path for blockers, the square next to the rook must be empty but may be attacked
         boolean canShortCastle = (
+            ((playerSign > 0) ? whiteShort : blackShort) &&
             (this.board[shortRookSquare / 8][shortRookSquare % 8] == friendlyRook) && 
-            ((opponentVision & shortCastleMask) == 0) && 
-            ((this.bitState & shortCastleMask) == 0) &&
-            (kingSquare == kingBitPos)
+            (kingSquare == kingBitPos) &&
+            ((this.bitState & AttackTables.between(kingSquare, shortRookSquare)) == 0) &&
+            !isAnySquareAttacked(shortCastleMask, opponentSign)
         );
         
-        // Long castle must check also that the square to the right of the Long rook is NOT occupied by pieces
-        // No need to check for vision as rooks can castle through enemy vision
         boolean canLongCastle = (
+            ((playerSign > 0) ? whiteLong : blackLong) &&
             (this.board[longRookSquare / 8][longRookSquare % 8] == friendlyRook) && 
-            ((opponentVision & longCastleMask) == 0) && 
-            ((this.bitState & (longCastleMask | longRookMask)) == 0) &&
-            (kingSquare == kingBitPos)
+            (kingSquare == kingBitPos) &&
+            ((this.bitState & AttackTables.between(kingSquare, longRookSquare)) == 0) &&
+            !isAnySquareAttacked(longCastleMask, opponentSign)
         );
 
-        if (canShortCastle) {retArray.add(new int[]{kingPiece, kingBitPos, shortCastleDest});}
-        if (canLongCastle) {retArray.add(new int[] {kingPiece, kingBitPos, longCastleDest});}
+        if (canShortCastle) {moves[count++] = PackedMove.pack(kingPiece, kingBitPos, shortCastleDest, MOVE_TYPE.CASTLE_SHORT);}
+        if (canLongCastle) {moves[count++] = PackedMove.pack(kingPiece, kingBitPos, longCastleDest, MOVE_TYPE.CASTLE_LONG);}
 
-        return retArray;
+        return count;
     }
 
     //#endregion-----------------------------------------------------------------------------------------------------------------
@@ -1926,17 +2549,11 @@ public class Board {
      * valid non self-checking moves.
      * 
      * <p>
-     * First deep clones the associated calling {@link Board} object's {@link boardState} attribute. Then<br>
-     * 'plays' the candidate move on that cloned board. An occupancy mask is then generated from this 'played' board.<br>
-     * A 'fresh' Board object is created, and its {@link boardState} and {@link bitState} attributes <br>
-     * are replaced with the 'played' cloned ones. We then invoke {@link getOpponentChecks} on this new board to <br>
-     * detect whether the candidate move would result in a self check. If the returned list is lenghth zero, we <br>
-     * know there are no checks and we add the move to the return list. If the returned list is not empty the move<br>
-     * is discarded.
-     * </p>
-     * 
-     * <p>
-     * As we are only filtering for CHECKS, only the boardState and bitState need to be set on the fresh board.
+     * No longer used by move generation, {@link generateLegalMoves} only emits legal moves. Kept for filtering<br>
+     * arbitrary candidate lists. Each candidate is 'played' on a copy of {@link bitState} only: the origin is cleared,<br>
+     * the destination set, and an en passent captured pawn removed. Attackers of the (possibly moved) king are then<br>
+     * computed against that occupancy with {@link attackersTo}, ignoring any piece captured by the move.<br>
+     * If no attackers remain the move is added to the return list, otherwise the move is discarded.
      * </p>
      * 
      * <p>
@@ -1951,45 +2568,30 @@ public class Board {
      */
     public ArrayList<int[]> removeSelfCheckingMoves(int playerSign, ArrayList<int[]> movesArray){
         ArrayList<int[]> retArray = new ArrayList<>();
-        Board futureBoard = new Board();
-        
-        
-        // Remove moves resulting in self-check
-        int[][] realBoard = getBoard();
+        int kingPos = findKingBitPosition(playerSign);
 
         for (int[] move : movesArray){
             int evasionPiece = move[0];
-            int originRank = move[1] / 8;
-            int originFile = move[1] % 8;
-            int destRank = move[2] / 8;
-            int destFile = move[2] % 8;
-            
-            int[][] candidateBoard = deepCloneBoard(realBoard);
-            candidateBoard[originRank][originFile] = 0; // Remove piece from origin
-            candidateBoard[destRank][destFile] = evasionPiece; // Put piece in destination
-            long candidateOcc = boardToBitboard(candidateBoard);
-            
-            // IF PAWN & ATTACK & ON EMPTY SQUARE, then en passent
-            // If en passent, we have to 'capture' the pawn, set to 0 in board
-            if ((Math.abs(evasionPiece) == 1) && (originFile != destFile) && (realBoard[destRank][destFile] == 0)){
-                int epRank = (evasionPiece > 0) ? destRank - 1 : destRank + 1; // Opponent pawn is either above or below the capturing pawn
+            long originMask = (1L << (63 - move[1]));
+            long destMask = (1L << (63 - move[2]));
+            // Any piece on the destination is captured, and can no longer attack
+            long capturedMask = destMask;
 
-                candidateBoard[epRank][destFile] = 0; // Set pawn that was en-passented to 0
-                candidateOcc = boardToBitboard(candidateBoard); // Overwrite occupancy
+            // IF PAWN & ATTACK & ON EMPTY SQUARE, then en passent
+            // If en passent, we have to 'capture' the pawn as well
+            if ((Math.abs(evasionPiece) == 1) && ((move[1] % 8) != (move[2] % 8)) && ((this.bitState & destMask) == 0)){
+                capturedMask |= (evasionPiece > 0) ? (destMask << 8) : (destMask >>> 8); // Opponent pawn is either below or above the destination
             }
-            
-            // Switch for checking
-            futureBoard.board = candidateBoard;
-            futureBoard.bitState = candidateOcc;
+
+            long candidateOcc = ((this.bitState & ~originMask) & ~capturedMask) | destMask;
+            int candidateKing = (Math.abs(evasionPiece) == 6) ? move[2] : kingPos;
+
             // Ensure move doesn't result in discovered self-check
-            if (futureBoard.getOpponentChecks(playerSign).size() == 0){
+            if ((attackersTo(candidateKing, playerSign * -1, candidateOcc) & ~capturedMask) == 0){
                 retArray.add(move);
             }
-
         }
         return retArray;
-        
-    
     }
     
     /**
@@ -1997,26 +2599,36 @@ public class Board {
      * of the corresponding bit in the RLERF encoded (see <a href="#RLERF">RLERF encoding</a> in {@link Board}) bitboard representation.
      *
      * <p>
-     * Iterates through the associated {@link boardState} looking for the value 6 for white, or -6 for black.<br>
-     * when found the method returns (rowIndex * 8) + fileIndex, which corresponds to the index of the square in <br>
-     * the RLERF encoding of the board.
+     * Reads the player's king bitboard from {@link pieceBitboards}, the single set bit is converted from a LERF<br>
+     * trailing zero count to the index of the square in the RLERF encoding of the board.
      * </p>
-     * 
+     *
      * @param playerSign int whose sign denotes which player's king to locate.
      * @return int denoting the position of the king in the form of an index of the RLERF {@link Board} encoded board <br>
      * representation.
      */
     public int findKingBitPosition(int playerSign){
-        int kingInt = (playerSign > 0) ? 6 : -6;
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                if (this.board[i][j] == kingInt){
-                    return (i * 8) + j;
-                }
-            }
-        }
+        long kingBitboard = getPieceBitboard((playerSign > 0) ? 6 : -6);
         // returns negative if not found
-        return -1;
+        if (kingBitboard == 0){
+            return -1;
+        }
+        return 63 - Long.numberOfTrailingZeros(kingBitboard);
+    }
+
+    /**
+     * Determines if the specified player's king is attacked in the current position.
+     *
+     * <p>
+     * Computed from the bitboards, unlike {@link getState} which is only updated by {@link updateState} and so is not<br>
+     * kept current by {@link makeMove}.
+     * </p>
+     * @param playerSign int whose sign denotes which player's king is tested.
+     * @return true if any opposing piece attacks the king, false otherwise or if the player has no king.
+     */
+    public boolean isInCheck(int playerSign){
+        int king = findKingBitPosition(playerSign);
+        return (king >= 0) && (attackersTo(king, -playerSign) != 0);
     }
 
     // Only one en passent destination square is possible
@@ -2034,69 +2646,17 @@ public class Board {
      * in RLERF format (see <a href="#RLERF">RLERF encoding</a> in {@link Board}). Will only ever be 0 or have a single bit flipped.
      */
     public long getPlayerEPMask(int playerSign){
-        int friendlyPawn = (playerSign > 0) ? 1 : -1;
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                if (this.board[i][j] == friendlyPawn){
-                    long temp = generateEnPassentMask(playerSign, ((i * 8) + j));
-                    if (temp > 0){
-                        return temp;
-                    }
-                }
+        long pawns = getPieceBitboard((playerSign > 0) ? 1 : -1);
+        while (pawns != 0){
+            long temp = generateEnPassentMask(playerSign, 63 - Long.numberOfTrailingZeros(pawns));
+            if (temp > 0){
+                return temp;
             }
+            pawns &= pawns - 1;
         }
         return 0L;
     }
 
-    // Generates a random zobrist table using a Map to store piece ID values, corresponding to a 64 length 
-    // long[] holding each unique hash for each corresponding board square bit 0 to 63
-    /**
-     * Generates a {@link Map} mapping each of the 12 piece values to a primitive long[64], whose contents<br>
-     * represents a unique zobrist hash value for each chess board square for that specific piece.
-     * 
-     * <p>
-     * Uses {@link ThreadLocalRandom} to generate the random values. The same piece with different owners counts<br>
-     * as two unique pieces.
-     * </p>
-     * @return a 12 length Map&lt;Integer, long[64]> representing a unique hash value for each board square,<br>
-     * for each piece. The order of the long[64] corresponds to the indices of a RLERF encoded board (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
-     */
-    public static Map<Integer, long[]> generateZobristTable(){
-        // Each piece identifier is mapped to a 64 length int[], corresponding to each square on the board
-        Map<Integer, long[]> retMap = new HashMap<>();
-
-        int[] pieces = new int[]{-6, -5, -4, -3, -2, -1, 1, 2, 3, 4, 5, 6};
-
-        for (int piece : pieces){
-            // Generate fresh hashes for each square, for this current piece
-            long[] temp = new long[64];
-            for (int i = 0; i < 63; i++){
-                temp[i] = ThreadLocalRandom.current().nextLong();
-            }
-
-            retMap.put(piece, temp);
-        }
-
-        return retMap;
-    }
-
-    /**
-     * Generates an 8 length {@link Map} mapping each of the 8 possible EP destination files to a <br>
-     * unique zobrist hash value.
-     *
-     * @return Map&lt;Integer, Long> mapping each file index Integer to a unique Long zobrist hash value.
-     */
-    public static Map<Integer, Long> generateEPHashTable(){
-        Map<Integer,Long> retMap = new HashMap<>();
-        int[] epFiles = new int[]{0, 1, 2, 3, 4, 5, 6, 7};
-
-        for (int i : epFiles){
-            retMap.put(i, ThreadLocalRandom.current().nextLong());
-        }
-
-        return retMap;
-    }
-
     /**
      * Generates a zobrist hash using the {@link Board} attributes representing variables determining
      * a unique position (Piece position, turn, en passent, caslting rights).
@@ -2117,17 +2677,17 @@ public class Board {
             for (int j = 0; j < 8; j++){
                 piece = this.board[i][j];
                 if (piece != 0){
-                    retLong ^= this.zobristTable.get(piece)[(i * 8) + j];
+                    retLong ^= Zobrist.pieceSquare(piece, (i * 8) + j);
                 }
             }
         }
 
         // Castling rights
-        if (whiteShort){retLong ^= whiteShortHash;};
-        if (whiteLong){retLong ^= whiteLongHash;};
-        if (blackShort){retLong ^= blackShortHash;};
+        if (whiteShort){retLong ^= Zobrist.WHITE_SHORT;};
+        if (whiteLong){retLong ^= Zobrist.WHITE_LONG;};
+        if (blackShort){retLong ^= Zobrist.BLACK_SHORT;};
 
-        if (blackLong){retLong ^= blackLongHash;};
+        if (blackLong){retLong ^= Zobrist.BLACK_LONG;};
 
         // En passent rights (If they exist)
         if (epHashHistory.size() > 0){
@@ -2135,7 +2695,7 @@ public class Board {
         }
 
         // Player turn
-        if (whitesTurn){retLong ^= whiteTurnHash;};
+        if (whitesTurn){retLong ^= Zobrist.WHITE_TURN;};
 
         return retLong;
     }
@@ -2163,7 +2723,7 @@ public class Board {
      * <br>
      * This is necessary as simply checking if castling == false, would cause repeated adding and removing of the castling<br>
      * hash.<br>
-     * ie. setting {@link whiteShort} = false can be done repeatedly and it is still false, however zobristHash ^= {@link whiteShortHash} <br>
+     * ie. setting {@link whiteShort} = false can be done repeatedly and it is still false, however zobristHash ^= {@link Zobrist#WHITE_SHORT} <br>
      * repeatedly will not result in the same behaviour. Thus we need a flag that denotes the first time a castling right is set to false, <br>
      * at which point this method will XOR out the corresponding castling hash once and only once, as castling rights never come back in a game.
      * </p>
@@ -2172,60 +2732,60 @@ public class Board {
      * @see zobristHistory
      */
     public void updateZobrist(){
-        Move lastMove = this.playedMoves.peek();
-        int origin = lastMove.getOriginBit();
-        int dest = lastMove.getDestBit();
-        int piece = lastMove.getPiece();
-        MOVE_TYPE lastType = lastMove.getType();
+        int lastMove = lastPlayedMove();
+        int origin = PackedMove.getOrigin(lastMove);
+        int dest = PackedMove.getDestination(lastMove);
+        int piece = PackedMove.getPiece(lastMove);
+        MOVE_TYPE lastType = PackedMove.getType(lastMove);
         int[][] lastBoard = this.boardHistory.peek();
         
         //#region Piece Position
         // Moves will always remove piece from origin
-        this.zobristHash ^= this.zobristTable.get(piece)[origin];
+        this.zobristHash ^= Zobrist.pieceSquare(piece, origin);
 
         if (lastType == MOVE_TYPE.MOVE){
-            this.zobristHash ^= this.zobristTable.get(piece)[dest]; // Place piece in destination
+            this.zobristHash ^= Zobrist.pieceSquare(piece, dest); // Place piece in destination
         }
         else if (lastType == MOVE_TYPE.ATTACK){
             int capturedPiece = lastBoard[dest/8][dest%8];
-            this.zobristHash ^= this.zobristTable.get(capturedPiece)[dest]; // Remove captured piece from dest
-            this.zobristHash ^= this.zobristTable.get(piece)[dest]; // Add new piece to dest
+            this.zobristHash ^= Zobrist.pieceSquare(capturedPiece, dest); // Remove captured piece from dest
+            this.zobristHash ^= Zobrist.pieceSquare(piece, dest); // Add new piece to dest
 
         }
         else if (lastType == MOVE_TYPE.EN_PASSENT){
             int rankAdjustment = (piece > 0) ? -8 : 8;
             int capturedPiece = (piece > 0) ? -1 : 1;
 
-            this.zobristHash ^= this.zobristTable.get(capturedPiece)[dest + rankAdjustment]; // Remove captured pawn
-            this.zobristHash ^= this.zobristTable.get(piece)[dest]; // Place moved piece
+            this.zobristHash ^= Zobrist.pieceSquare(capturedPiece, dest + rankAdjustment); // Remove captured pawn
+            this.zobristHash ^= Zobrist.pieceSquare(piece, dest); // Place moved piece
         }
         else if (lastType == MOVE_TYPE.CASTLE_LONG){
             int rook = (piece > 0) ? 4 : -4;
             // place king
-            this.zobristHash ^= this.zobristTable.get(piece)[dest];
+            this.zobristHash ^= Zobrist.pieceSquare(piece, dest);
 
             // Remove and place rook
-            this.zobristHash ^= this.zobristTable.get(rook)[dest - 2];
-            this.zobristHash ^= this.zobristTable.get(rook)[dest + 1];
+            this.zobristHash ^= Zobrist.pieceSquare(rook, dest - 2);
+            this.zobristHash ^= Zobrist.pieceSquare(rook, dest + 1);
         }
         else if (lastType == MOVE_TYPE.CASTLE_SHORT){
             int rook = (piece > 0) ? 4 : -4;
             // place king
-            this.zobristHash ^= this.zobristTable.get(piece)[dest];
+            this.zobristHash ^= Zobrist.pieceSquare(piece, dest);
 
             // Remove and place rook
-            this.zobristHash ^= this.zobristTable.get(rook)[dest + 1];
-            this.zobristHash ^= this.zobristTable.get(rook)[dest - 1];
+            this.zobristHash ^= Zobrist.pieceSquare(rook, dest + 1);
+            this.zobristHash ^= Zobrist.pieceSquare(rook, dest - 1);
         }
         else if (lastType == MOVE_TYPE.PROMOTE_ATTACK){
             int promotedPiece = this.board[dest/8][dest%8];
             int capturedPiece = lastBoard[dest/8][dest%8];
-            this.zobristHash ^= this.zobristTable.get(capturedPiece)[dest];// remove captured piece
-            this.zobristHash ^= this.zobristTable.get(promotedPiece)[dest];// add newly promoted piece
+            this.zobristHash ^= Zobrist.pieceSquare(capturedPiece, dest);// remove captured piece
+            this.zobristHash ^= Zobrist.pieceSquare(promotedPiece, dest);// add newly promoted piece
         }
         else if (lastType == MOVE_TYPE.PROMOTE_MOVE){
             int promotedPiece = this.board[dest/8][dest%8];
-            this.zobristHash ^= this.zobristTable.get(promotedPiece)[dest]; // Place promoted piece
+            this.zobristHash ^= Zobrist.pieceSquare(promotedPiece, dest); // Place promoted piece
         }
         else{
             System.out.println("updateZorbist() ERROR: INVALID MOVE TYPE");
@@ -2237,8 +2797,8 @@ public class Board {
         // If current player can EP
         long lastEpHash = (this.epHashHistory.size() != 0) ? this.epHashHistory.peek() : 0L;
         if (epMask > 0){
-            int epFile = getSetBitPositions(epMask).get(0) % 8;
-            long currentEpHash = epHashTable.get(epFile);
+            int epFile = (63 - Long.numberOfTrailingZeros(epMask)) % 8;
+            long currentEpHash = Zobrist.enPassent(epFile);
             // Incoming zobrist is not ep-enabled
             if (lastEpHash == 0){
                 this.zobristHash ^= currentEpHash; // Add current
@@ -2249,37 +2809,39 @@ public class Board {
                 this.zobristHash ^= currentEpHash; // Add current EP
                 this.epHashHistory.push(currentEpHash); // add to history
             }
+            this.epHash = currentEpHash;
         }
         // If no current EP possibility exists
         else {
             this.zobristHash ^= lastEpHash; // Either removes the last EP hash, or XOR's with 0 which doesn't matter
             this.epHashHistory.push(0L);
+            this.epHash = 0L;
         }
         //#endregion     
         //#region Castling Rights
         if (this.WSF){
-            this.zobristHash ^= this.whiteShortHash;
+            this.zobristHash ^= Zobrist.WHITE_SHORT;
             this.WSF = false;
         }
         if (this.WLF){
-            this.zobristHash ^= this.whiteLongHash;
+            this.zobristHash ^= Zobrist.WHITE_LONG;
             this.WLF = false;
         }
         if (this.BSF){
-            this.zobristHash ^= this.blackShortHash;
+            this.zobristHash ^= Zobrist.BLACK_SHORT;
             this.BSF = false;
         }
         if (this.BLF){
-            this.zobristHash ^= this.blackLongHash;
+            this.zobristHash ^= Zobrist.BLACK_LONG;
             this.BLF = false;
         }
         //endregion        
         //#region Toggle turn
-        this.zobristHash ^= this.whiteTurnHash;
+        this.zobristHash ^= Zobrist.WHITE_TURN;
         //#endregion
     
         // Add zobrist hash to zobrist history
-        this.zobristHistory.push(this.zobristHash); // Should push a copy as it is a primitive long
+        pushZobristHistory(this.zobristHash);
 
     }
     
@@ -2305,48 +2867,30 @@ public class Board {
      * Programatically this is achieved by checking the presence of any Queens, Rooks, or Pawns first. If <br>
      * none are present, we determine if material for both sides is less than or equal to 9 (KB vs KB). Now the <br>
      * only sufficient material that is 9 pts or lower for both sides would be King+Knight vs King+Knight so if <br>
-     * both players still have a knight then it is NOT insufficent, otherwise it is.
+     * both players still have a knight then it is NOT insufficent, otherwise it is. Only {@link pieceCounts} is read,<br>
+     * so the check costs the same regardless of the position.
      * </p>
      * 
      * @return true if there is insuffient material, false otherwise.
      */
     public boolean checkInsufficientMaterial(){
-        int whiteMat = 0;
-        int blackMat = 0;
-        boolean whiteKnight = false;
-        boolean blackKnight = false;
+        // If any pawn, rook, or queen is detected return false
+        int[] counts = this.pieceCounts;
+        if ((counts[1 + 6] | counts[-1 + 6] | counts[4 + 6] | counts[-4 + 6] | counts[5 + 6] | counts[-5 + 6]) != 0){
+            return false;
+        }
 
-        // Iterate through all board squares
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                int piece = this.board[i][j];
-                int pieceID = Math.abs(piece);
-                // If any pawn, rook, or queen is detected return false
-                // Detect knights for both sides
-                if (pieceID == 1 || pieceID == 5 || pieceID == 4){
-                    return false;
-                }else if (piece == 2){
-                    whiteKnight = true;
-                }
-                else if (piece == -2){
-                    blackKnight = true;
-                }
-                // If its another piece, add to appropriate material count
-                else {
-                    if (piece < 0){
-                        blackMat += piece;
-                    }
-                    else{
-                        whiteMat += piece;
-                    }
+        // Detect knights for both sides
+        boolean whiteKnight = counts[2 + 6] != 0;
+        boolean blackKnight = counts[-2 + 6] != 0;
 
-                    // After each addition, if white or black material reaches greater than 9, then its not insufficent material
-                    if ((whiteMat > 9) && (blackMat < -9)){
-                        return false;
-                    }
-                    
-                }
-            }
+        // Remaining pieces (bishops and kings) are added to the appropriate material count
+        int whiteMat = (3 * counts[3 + 6]) + (6 * counts[6 + 6]);
+        int blackMat = (-3 * counts[-3 + 6]) + (-6 * counts[-6 + 6]);
+
+        // If white and black material are both greater than 9, then its not insufficent material
+        if ((whiteMat > 9) && (blackMat < -9)){
+            return false;
         }
 
         // If material for both is < 9, but both have knights, then technically its not insufficient material, otherwise it is
@@ -2371,8 +2915,8 @@ public class Board {
      * </p>
      */
     public void updateHalfClock(){
-        MOVE_TYPE lastType = this.playedMoves.peek().getType();
-        int lastPieceID = Math.abs(this.playedMoves.peek().getPiece());
+        MOVE_TYPE lastType = PackedMove.getType(lastPlayedMove());
+        int lastPieceID = Math.abs(PackedMove.getPiece(lastPlayedMove()));
 
         // If last move was a MOVE and NOT PAWN OR Castle
         if (((lastType == MOVE_TYPE.MOVE) && (lastPieceID != 1)) || (lastType == MOVE_TYPE.CASTLE_LONG) || (lastType == MOVE_TYPE.CASTLE_SHORT)){
@@ -2407,22 +2951,41 @@ public class Board {
      * 
      * @param n the number of occurences at which this method will return true.
      * @return true if there are more than or equal to n occurences in the zobrist history, false otherwise.
+     * @see countRepetitions
      */
     public boolean checkNFoldRepeat(int n){
-        if (this.zobristHistory.size() < n){
-            return false;
-        }
-        else {
-            int matches = 0;
-            long current = this.zobristHistory.peek();
-            
-            for (long past : this.zobristHistory){
-                if (current == past){
-                    matches++;
-                }
+        return countRepetitions() >= n;
+    }
+
+    /**
+     * Counts the occurences of the current zobrist hash in the zobrist history, including the current one.
+     * 
+     * <p>
+     * Only positions that can possibly repeat the current one are compared: those with the same player to move<br>
+     * (every second entry) and no further back than the last capture or pawn move, as {@link halfClock} plies ago.<br>
+     * Positions before an irreversible move can never occur again, so a long game costs no more than a short one.<br>
+     * The position two plies back is skipped as both players have moved a piece since.
+     * </p>
+     * @return the number of occurences of the current position, at least 1.
+     */
+    public int countRepetitions(){
+        int current = this.zobristHistorySize - 1;
+        long hash = this.zobristHistory[current];
+        int oldest = Math.max(0, current - this.halfClock);
+        int count = 1;
+        for (int i = current - 4; i >= oldest; i -= 2){
+            if (this.zobristHistory[i] == hash){
+                count++;
             }
-            return (matches >= n) ? true : false;
         }
+        return count;
+    }
+
+    private void pushZobristHistory(long hash){
+        if (this.zobristHistorySize == this.zobristHistory.length){
+            this.zobristHistory = Arrays.copyOf(this.zobristHistory, this.zobristHistory.length * 2);
+        }
+        this.zobristHistory[this.zobristHistorySize++] = hash;
     }
 
     public boolean squareIsOccupied(int squareBit){
@@ -2431,235 +2994,180 @@ public class Board {
         return occ != 0 ? true : false;
     }
 
-    public int getPieceAtBitAddress(int bit){
-        return this.board[bit/8][bit%8];
+    public int getPieceAtBitAddress(int bit){
+        return this.board[bit/8][bit%8];
+    }
+
+    /**
+     * Appends the last move played with {@link playMove} to the algebraic history, in standard algebraic notation (SAN).
+     *
+     * <p>
+     * Must be called once {@link state} reflects the new position, as it decides the check or mate suffix. Ambiguity<br>
+     * is found from the bitboards (see {@link appendSan(StringBuilder, int, int, int, MOVE_TYPE, int, long, char)}),<br>
+     * so the move list of the previous position is not needed. The string is built in {@link sanBuilder}, only the<br>
+     * final String is allocated.
+     * </p>
+     */
+    public void recordAlgebraicMove(){
+        int move = lastPlayedMove();
+        int origin = PackedMove.getOrigin(move);
+        char suffix = 0;
+        if (this.state == BOARD_STATE.CHECK){
+            suffix = '+';
+        }
+        else if ((this.state == BOARD_STATE.W_MATE) || (this.state == BOARD_STATE.B_MATE)){
+            suffix = '#';
+        }
+        // The moved piece has left its origin, put it back to get the occupancy the other pieces moved through
+        long preMoveOccupancy = this.bitState | (1L << (63 - origin));
+
+        this.sanBuilder.setLength(0);
+        appendSan(this.sanBuilder, PackedMove.getPiece(move), origin, PackedMove.getDestination(move), PackedMove.getType(move),
+                  PackedMove.getPromotionPiece(move), preMoveOccupancy, suffix);
+        this.algebraicHistory.add(this.sanBuilder.toString());
+    }
+
+    /**
+     * Appends a legal move of the current position to the provided StringBuilder in standard algebraic notation (SAN),<br>
+     * including the check or mate suffix, without allocating.
+     *
+     * <p>
+     * For move display and PGN export of moves that have not been played, ie. a search line. The move is played with<br>
+     * {@link makeMove} and taken back to find the suffix, so the board is left unchanged.
+     * </p>
+     * @param move the {@link PackedMove} to write, must be legal in the current position.
+     * @param sb the StringBuilder appended to, ie. reused between moves with setLength(0).
+     */
+    public void appendSan(int move, StringBuilder sb){
+        int piece = PackedMove.getPiece(move);
+        int sign = (piece > 0) ? 1 : -1;
+        makeMove(move);
+        char suffix = 0;
+        if (isInCheck(-sign)){
+            suffix = hasAnyLegalMove(-sign) ? '+' : '#';
+        }
+        unmakeMove();
+
+        appendSan(sb, piece, PackedMove.getOrigin(move), PackedMove.getDestination(move), PackedMove.getType(move),
+                  PackedMove.getPromotionPiece(move), this.bitState, suffix);
     }
 
-    public void recordAlgebraicMove(ArrayList<int[]> lastValidMoves){
-        //#region Extract move info and setup
-        Move move = this.playedMoves.peek();
-        MOVE_TYPE moveType = move.getType();
-        int origin = move.getOriginBit();
-        int destination = move.getDestBit();
-        int piece = move.getPiece();
-        StringBuilder sb = new StringBuilder();
-        //#endregion
-
+    /**
+     * Writes a move in SAN, finding the disambiguation from the bitboards.
+     *
+     * <p>
+     * The other pieces of the same type and owner that could have moved to the destination are its reverse attacks<br>
+     * (ie. knights a knight jump away) given the occupancy before the move. Each one is then checked to not leave its<br>
+     * own king attacked, as pinned pieces don't count as SAN ambiguity. Following the SAN rules, the origin file is<br>
+     * written if no other such piece shares it, otherwise the origin rank if no other piece shares that, otherwise both.<br>
+     * Pawn captures always write their origin file, and kings never need disambiguating.
+     * </p>
+     * <p>
+     * Works from both sides of the move, as only the other pieces and the opponent's pieces are read from the bitboards:<br>
+     * before it is played (see {@link appendSan(int, StringBuilder)}) or after it (see {@link recordAlgebraicMove}).
+     * </p>
+     * @param preMoveOccupancy RLERF occupancy of the position the move was played from.
+     * @param suffix '+', '#' or 0 for none.
+     */
+    private void appendSan(StringBuilder sb, int piece, int origin, int destination, MOVE_TYPE moveType, int promotionPiece,
+                           long preMoveOccupancy, char suffix){
         if (moveType == MOVE_TYPE.CASTLE_LONG){
-            this.algebraicHistory.add("O-O-O");
-            return;
+            sb.append("O-O-O");
         }
-        else if(moveType == MOVE_TYPE.CASTLE_SHORT){
-            this.algebraicHistory.add("O-O");
-            return;
+        else if (moveType == MOVE_TYPE.CASTLE_SHORT){
+            sb.append("O-O");
         }
-        
-        //#region Piece determination
-        sb.append(Move.PIECE_INT_TO_STRING.get(piece));
-        //#endregion
+        else {
+            int absPiece = Math.abs(piece);
+            boolean capture = (moveType == MOVE_TYPE.ATTACK) || (moveType == MOVE_TYPE.PROMOTE_ATTACK) || (moveType == MOVE_TYPE.EN_PASSENT);
 
-        //#region Disambiguation determination
-        // Determine if move requires disambiguation, if so rankDis and fileDis are set. If not they are left as empty strings
-        // to be appended to the string builder.
-        // Disambiguation possibilities:
-        // Single: Two pieces on the same rank OR file can attack the same square
-        // Double: Square can be attacked by pieces on the same RANK and FILE at the same time
-        // Check for disambig
-        // Only if >2 pieces of the same type can move to the target square
-        // Pawn: SINGLE only
-        // King: NO DISAMBIG
-        // Bishop: Single/Double
-        // Knight: Single/Double
-        // Rook: SINGLE only
-        // Queen: Single/Double
-        String rankDis = "";
-        String fileDis = "";
-        boolean sharedFile = false;
-        boolean sharedRank = false;
-        // Count identical pieces that share the file and/or rank of the target piece
-
-        // if not king, and (not (pawn and (move or promoteMove)))
-        if (Math.abs(piece) != 6 && !(Math.abs(piece) == 1 && (moveType == MOVE_TYPE.MOVE || moveType == MOVE_TYPE.PROMOTE_MOVE))){
-            
-            // If pawn capture move just set file disambiguation every time
-            if (Math.abs(piece) == 1 && (moveType == MOVE_TYPE.ATTACK || moveType == MOVE_TYPE.PROMOTE_ATTACK || moveType == MOVE_TYPE.EN_PASSENT)){
-                fileDis = RegexParser.FILE_LABEL.get(origin%8);
+            //#region Piece and disambiguation
+            if (absPiece == 1){
+                if (capture){
+                    sb.append((char)('a' + (origin % 8)));
+                }
             }
             else {
-                for (int[] mv : lastValidMoves){
-                    // if piece is the same AND dest squares are the same AND origin squares not the same
-                    if (mv[0] == piece && mv[2] == destination && mv[1] != origin){
-    
-                        if (mv[1]/8 == origin/8){
-                            sharedRank = true;
+                sb.append(SAN_PIECE_LETTERS.charAt(absPiece));
+                if (absPiece != 6){
+                    int shared = findSanAmbiguity(piece, origin, destination, preMoveOccupancy);
+                    if (shared != 0){
+                        if ((shared & SHARED_FILE) == 0){
+                            sb.append((char)('a' + (origin % 8)));
+                        }
+                        else if ((shared & SHARED_RANK) == 0){
+                            sb.append((char)('1' + (origin / 8)));
                         }
-                        else if(mv[1]%8 == origin%8){
-                            sharedFile = true;
+                        else {
+                            sb.append((char)('a' + (origin % 8))).append((char)('1' + (origin / 8)));
                         }
                     }
-                    if (sharedRank && sharedFile) break;
                 }
             }
-        }
-
-        /* 
-        // switch (Math.abs(piece)){
-        //     case 1:{
-        //         if (moveType == MOVE_TYPE.ATTACK || moveType == MOVE_TYPE.PROMOTE_ATTACK){
-        //             int diff = destination - origin;
-        //             int otherSquare;
-        //             if (diff == 9){ // Black pawn attack from NE
-        //                 otherSquare = origin + 7;
-        //             }
-        //             else if (diff == 7){// Black pawn attack from NW
-        //                 otherSquare = origin + 9;
-        //             }
-        //             else if (diff == -7){ // White pawn attack from SE
-        //                 otherSquare = origin - 9;
-        //             }
-        //             else if (diff == -9){ // White pawn attack from SW
-        //                 otherSquare = origin - 7;
-        //             }
-        //             else {
-        //                 // Should never get here, just to satisfy compiler, will throw out of bounds exception in the next 'if' if it reaches here
-        //                 otherSquare = -1; 
-        //             }
-        //             // If another of the player's pawns exist on the other square, disambiguate current move
-        //             if (this.board[otherSquare/8][otherSquare%8] == piece){
-        //                 fileDis = RegexParser.FILE_LABEL.get(origin%8);
-        //             }                    
-        //         }
-        //         break;
-        //     }
-        //     case 2:{
-        //         // Check all 8 squares
-        //         int[] otherSquares = new int[]{origin + 6, origin + 15, origin + 17, origin + 10, origin - 6, origin -15, origin - 17,
-        //             origin - 10};
-        //         sharedFile = 0;
-        //         sharedRank = 0;
-        //         for (int square : otherSquares){
-        //             // Prevent out of bounds checks
-        //             if (square < 0 || square > 63) continue;
-
-        //             if (this.board[square/8][square%8] == piece){
-        //                 if (square/8 == origin/8){
-        //                     sharedRank++;
-        //                 }
-        //                 else if (square%8 == origin%8){
-        //                     sharedFile++;
-        //                 }
-        //             }
-
-        //             if (sharedFile > 0 && sharedRank > 0){
-        //                 break;
-        //             }
-        //         }
-        //         break;
-        //     }
-        //     case 3:{
-        //         // Diagonal AND antidiagonal AND NOT destination square
-        //         // Use generateValidDiagonalRayMask to get a 'blocked' bishop ray mask
-        //         long candidateMask = generateValidDiagonalRayMask(destination);
-        //         ArrayList<Integer> otherSquares = getSetBitPositions(candidateMask);
-
-        //         // Single: Target piece shares rank OR file with another target piece
-        //         // Double: Target piece shares rank with a second piece, shares file with a third piece
-        //         sharedFile = 0;
-        //         sharedRank = 0;
-
-        //         for (int square : otherSquares){
-        //             if (this.board[square/8][square%8] == piece){
-        //                 if (square/8 == origin/8){
-        //                     sharedRank++;
-        //                 }
-        //                 else if (square%8 == origin%8){
-        //                     sharedFile++;
-        //                 }
-        //             }
-
-        //             // Break loop as soon as double disambiguation is required
-        //             if (sharedFile > 0 && sharedRank > 0){
-        //                 break; // Doesn't matter if there are more, we already maximally disambiguate
-        //             }
-        //         }
-        //         break;
-        //     }
-        //     case 4:{
-        //         long candidateMask = generateValidStraightRayMask(destination);
-        //         ArrayList<Integer> otherSquares = getSetBitPositions(candidateMask);
-
-        //         for (int square : otherSquares){
-        //             if (this.board[square/8][square%8] == piece){
-        //                 if (square/8 == origin/8){
-        //                     sharedRank++;
-        //                 }
-        //                 else if (square%8 == origin%8){
-        //                     sharedFile++;
-        //                 }
-        //             }
-
-        //             if (sharedFile > 0 && sharedRank > 0){
-        //                 break;
-        //             }
-        //         }
-        //         break;
-        //     }
-        //     case 5:{
-        //         long candidateMask = generateValidAllRayMask(destination);
-        //         ArrayList<Integer> otherSquares = getSetBitPositions(candidateMask);
-
-        //         for (int square : otherSquares){
-        //             if (this.board[square/8][square%8] == piece){
-        //                 if (square/8 == origin/8){
-        //                     sharedRank++;
-        //                 }
-        //                 else if (square%8 == origin%8){
-        //                     sharedFile++;
-        //                 }
-        //             }
-
-        //             if (sharedRank > 0 && sharedFile > 0){
-        //                 break;
-        //             }
-        //         }
-        //         break;
-        //     }
-        // }
-        // // Determine required disambiguation dependent on if the target piece shares its rank/file with other pieces of the same type and owner
-        */
-        if (sharedRank) fileDis = RegexParser.FILE_LABEL.get(origin%8);
-        if (sharedFile) rankDis = String.valueOf((origin/8) + 1);
-
-        sb.append(fileDis);
-        sb.append(rankDis);
-        //#endregion
+            //#endregion
 
-        //#region Capture determination
-        if (moveType == MOVE_TYPE.ATTACK || moveType == MOVE_TYPE.PROMOTE_ATTACK || moveType == MOVE_TYPE.EN_PASSENT){
-            sb.append('x');
+            if (capture){
+                sb.append('x');
+            }
+            sb.append((char)('a' + (destination % 8))).append((char)('1' + (destination / 8)));
+            if (promotionPiece != 0){
+                sb.append('=').append(SAN_PIECE_LETTERS.charAt(Math.abs(promotionPiece)));
+            }
         }
-        //#endregion
-
-        //#region Destination square
-        sb.append(RegexParser.FILE_LABEL.get(destination%8));
-        sb.append(String.valueOf((destination/8) + 1));
-        //#endregion
 
-        //#region Promotion and possible check
-        if (moveType == MOVE_TYPE.PROMOTE_MOVE || moveType == MOVE_TYPE.PROMOTE_ATTACK){
-            sb.append("=");
-            sb.append(Move.PIECE_INT_TO_STRING.get(move.getPromotionPiece()));
+        if (suffix != 0){
+            sb.append(suffix);
         }
+    }
 
-        if (this.state == BOARD_STATE.CHECK){
-            sb.append("+");
+    /**
+     * Finds the other pieces of the same type and owner that can legally move to the destination square.
+     *
+     * @return 0 if there are none, otherwise {@link SHARED_ANY} with {@link SHARED_RANK} and/or {@link SHARED_FILE} set<br>
+     * if any of them share the origin's rank or file.
+     */
+    private int findSanAmbiguity(int piece, int origin, int destination, long preMoveOccupancy){
+        int sign = (piece > 0) ? 1 : -1;
+        long destMask = 1L << (63 - destination);
+        long reach;
+        switch (Math.abs(piece)){
+            case 2:
+                reach = AttackTables.KNIGHT[destination];
+                break;
+            case 3:
+                reach = MagicBitboard.bishopAttacks(destination, preMoveOccupancy);
+                break;
+            case 4:
+                reach = MagicBitboard.rookAttacks(destination, preMoveOccupancy);
+                break;
+            default:
+                reach = MagicBitboard.bishopAttacks(destination, preMoveOccupancy) | MagicBitboard.rookAttacks(destination, preMoveOccupancy);
+                break;
         }
-        else if (this.state == BOARD_STATE.W_MATE || this.state == BOARD_STATE.B_MATE){
-            sb.append("#");
+        long candidates = getPieceBitboard(piece) & reach & ~(destMask | (1L << (63 - origin)));
+        if (candidates == 0){
+            return 0;
         }
-        //#endregion
 
-        this.algebraicHistory.add(sb.toString());
+        int king = findKingBitPosition(sign);
+        int shared = 0;
+        while (candidates != 0){
+            int square = 63 - Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            // The piece on the destination (if any) would be captured, so it can't attack the king
+            long occupancy = (preMoveOccupancy & ~(1L << (63 - square))) | destMask;
+            if ((king >= 0) && ((attackersTo(king, -sign, occupancy) & ~destMask) != 0)){
+                continue;
+            }
+            shared |= SHARED_ANY;
+            if ((square / 8) == (origin / 8)){
+                shared |= SHARED_RANK;
+            }
+            if ((square % 8) == (origin % 8)){
+                shared |= SHARED_FILE;
+            }
+        }
+        return shared;
     }
 
     //#endregion--------------------------------------------------------------------------------------------------------------------------------------
@@ -2712,6 +3220,11 @@ public class Board {
      * quintessence method utilises LERF (non-reversed) encoding so the provided parameters must first<br>
      * be reversed RLERF -> LERF, and the return value reversed from LERF -> RLERF.
      * </p>
+     * 
+     * <p>
+     * No longer used for move generation, sliding masks are looked up from {@link MagicBitboard}. Kept as the<br>
+     * reference implementation that the magic tables are benchmarked and checked against in {@link engineBenchmarks}.
+     * </p>
      * @param occMask mask representing board occupancy in RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
      * @param rayMask mask representing the specific ray to be blocked in RLERF encoding.
      * @param pieceMask mask representing the location of the piece that lies on the ray, <br>
@@ -2762,6 +3275,11 @@ public class Board {
      * </code>
      * </p>
      * 
+     * <p>
+     * Boxes every index into the returned list, so it is not used on any move generation path. Hot loops iterate<br>
+     * the set bits in place with the same numberOfTrailingZeros / bitboard &amp;= bitboard - 1 pattern instead.
+     * </p>
+     * 
      * @param bitboard long representation of a RLERF (see {@Board}) encoded bitboard.
      * @return {@link ArrayList} of {@link Integer} representing all indicices in the provided bitboard that were <br>
      * set.
@@ -2782,7 +3300,7 @@ public class Board {
     }
 
     /**
-     * Utility method used in {@link generateEvasionPath} that shifts the provided pos bitmask in the direction<br>
+     * Utility method that shifts the provided pos bitmask in the direction<br>
      * specified by the provided direction, and returns the result.
      * 
      * @param pos long RLERF bitmask (see {@Board}) with one flipped bit as the current 'position' to be shifted.
@@ -2810,6 +3328,73 @@ public class Board {
 
 
 
+    }
+
+    /**
+     * Toggles the bit for the provided piece on the provided square in {@link pieceBitboards} and the<br>
+     * corresponding colour occupancy ({@link whiteOcc} or {@link blackOcc}).
+     *
+     * <p>
+     * XOR is used so the same call both adds a piece to an empty square and removes it again, the caller is<br>
+     * responsible for only toggling pieces that are actually being placed or removed. Does not modify {@link bitState},<br>
+     * which is still maintained by {@link setOccBit}.
+     * </p>
+     * @param piece int value of the piece, -6 to 6 excluding 0.
+     * @param bitIndex index of the square in RLERF encoding (see <a href="#RLERF">RLERF encoding</a> in {@link Board}).
+     */
+    private void togglePieceBit(int piece, int bitIndex){
+        long temp = (1L << (63 - bitIndex));
+        this.pieceBitboards[piece + 6] ^= temp;
+        if (piece > 0){
+            this.whiteOcc ^= temp;
+        }
+        else {
+            this.blackOcc ^= temp;
+        }
+    }
+
+    /**
+     * Rebuilds {@link pieceBitboards}, {@link whiteOcc}, {@link blackOcc}, {@link pieceCounts} and {@link materialKey}<br>
+     * from scratch by scanning {@link board}.
+     *
+     * <p>
+     * Only needed when {@link board} is replaced wholesale (construction, {@link undoLastMove}, {@link setBoard}),<br>
+     * {@link playMove} updates the bitboards incrementally instead.
+     * </p>
+     */
+    private void syncPieceBitboards(){
+        Arrays.fill(this.pieceBitboards, 0L);
+        this.whiteOcc = 0L;
+        this.blackOcc = 0L;
+        for (int i = 0; i < 8; i++){
+            for (int j = 0; j < 8; j++){
+                int piece = this.board[i][j];
+                if (piece != 0){
+                    togglePieceBit(piece, (i * 8) + j);
+                }
+            }
+        }
+
+        for (int i = 0; i < 13; i++){
+            this.pieceCounts[i] = Long.bitCount(this.pieceBitboards[i]);
+        }
+        this.materialKey = Zobrist.materialKey(this.pieceCounts);
+    }
+
+    /**
+     * Adds a piece to {@link pieceCounts} and {@link materialKey}, for a promotion or an unmade capture.
+     */
+    private void addMaterial(int piece){
+        int n = ++this.pieceCounts[piece + 6];
+        this.materialKey ^= Zobrist.material(piece, n);
+    }
+
+    /**
+     * Removes a piece from {@link pieceCounts} and {@link materialKey}, for a capture or the pawn of a promotion.
+     */
+    private void removeMaterial(int piece){
+        int n = this.pieceCounts[piece + 6]--;
+        this.materialKey ^= Zobrist.material(piece, n);
     }
     //#endregion
 
@@ -2832,12 +3417,60 @@ public class Board {
         return this.bitState;
     }
 
+    /**
+     * Returns the occupancy bitboard of a single piece type for one player.
+     *
+     * @param piece int value of the piece, -6 to 6. Passing 0 returns an empty mask.
+     * @return long RLERF mask (see <a href="#RLERF">RLERF encoding</a> in {@link Board}) of every square holding the provided piece.
+     */
+    public long getPieceBitboard(int piece){
+        return this.pieceBitboards[piece + 6];
+    }
+
+    /**
+     * Returns the number of the provided piece on the board.
+     *
+     * @param piece int value of the piece, -6 to 6. Passing 0 returns 0.
+     * @return the piece count.
+     */
+    public int getPieceCount(int piece){
+        return this.pieceCounts[piece + 6];
+    }
+
+    /**
+     * Returns the material key of the current position, which only depends on how many of each piece are on the board.<br>
+     * See {@link Zobrist#materialKey(int[])} to build the key of a material signature without a Board.
+     */
+    public long getMaterialKey(){
+        return this.materialKey;
+    }
+
     public void addMove(Move newMove){
-        this.playedMoves.push(newMove);
+        invalidateValidMoves();
+        pushPlayedMove(newMove.toPacked());
+        this.doublePushSquare = lastMoveDoublePushSquare();
     }
 
+    /**
+     * Returns a {@link Move} view of the last played move, null if no move has been played.
+     */
     public Move peekMove(){
-        return this.playedMoves.peek().clone();
+        int lastMove = lastPlayedMove();
+        return (lastMove != 0) ? new Move(lastMove) : null;
+    }
+
+    /**
+     * Returns the last played move in {@link PackedMove} encoding without building a {@link Move}, 0 if no move has been played.
+     */
+    public int peekPackedMove(){
+        return lastPlayedMove();
+    }
+
+    /**
+     * Returns a copy of every played move in {@link PackedMove} encoding, oldest first, ie. for storing a game history.
+     */
+    public int[] getPlayedMoves(){
+        return Arrays.copyOf(this.playedMoves, this.playedMovesSize);
     }
 
     public BOARD_STATE getState(){
@@ -2862,6 +3495,7 @@ public class Board {
      * @param bool the value to change the castling right to.
      */
     public void setShortCastleRights(int playerSign, boolean bool){
+        invalidateValidMoves();
         if (playerSign > 0){
             if (this.whiteShort != bool){
                 this.WSF = true;
@@ -2891,9 +3525,10 @@ public class Board {
      * @param bool the value to change the castling right to.
      */
     public void setLongCastleRights(int playerSign, boolean bool){
+        invalidateValidMoves();
         if (playerSign > 0){
             if (this.whiteLong != bool){
-                this.WLF = bool;
+                this.WLF = true;
             }
             this.whiteLong = bool;
         }
@@ -2946,11 +3581,11 @@ public class Board {
     }
 
     public int getPlayedMovesLength(){
-        return this.playedMoves.size();
+        return this.playedMovesSize;
     }
 
     public int getZobristHistoryLength(){
-        return this.zobristHistory.size();
+        return this.zobristHistorySize;
     }
     
     public int getTurnInt(){
@@ -2976,14 +3611,7 @@ public class Board {
     }
     
     public long[] getZobristHistory(){
-        long[] retArray = new long[this.zobristHistory.size()];
-
-        int i = this.zobristHistory.size() - 1;
-        for (Long l : this.zobristHistory){
-            retArray[i] = l;
-            i--;
-        }
-        return retArray;
+        return Arrays.copyOf(this.zobristHistory, this.zobristHistorySize);
     }
     
     public ArrayList<String> getAlgebraicHistory(){
@@ -2994,16 +3622,41 @@ public class Board {
     
     // TEST FUNCTION REMOVE AFTER
     public void setBoard(int[][] newBoard){
+        invalidateValidMoves();
         this.board = newBoard;
+        syncPieceBitboards();
     }
     public void setOcc(long occ){
+        invalidateValidMoves();
         this.bitState = occ;
     }
+    // Adds the move as the oldest played move, as ArrayDeque.add did when playedMoves was a stack of Move objects
     public void addMoveToQueue(Move move){
-        this.playedMoves.add(move);
+        invalidateValidMoves();
+        pushPlayedMove(0);
+        System.arraycopy(this.playedMoves, 0, this.playedMoves, 1, this.playedMovesSize - 1);
+        this.playedMoves[0] = move.toPacked();
+        this.doublePushSquare = lastMoveDoublePushSquare();
     }
+    // The queue is ordered newest first, as returned by getMoveQueue
     public void setMoveQueue(ArrayDeque<Move> queue){
-        this.playedMoves = queue;
+        invalidateValidMoves();
+        this.playedMovesSize = 0;
+        Iterator<Move> oldestFirst = queue.descendingIterator();
+        while (oldestFirst.hasNext()){
+            pushPlayedMove(oldestFirst.next().toPacked());
+        }
+        this.doublePushSquare = lastMoveDoublePushSquare();
+    }
+    /**
+     * Returns {@link Move} views of every played move, newest first, in the form accepted by {@link setMoveQueue}.
+     */
+    public ArrayDeque<Move> getMoveQueue(){
+        ArrayDeque<Move> queue = new ArrayDeque<Move>(this.playedMovesSize);
+        for (int i = 0; i < this.playedMovesSize; i++){
+            queue.push(new Move(this.playedMoves[i]));
+        }
+        return queue;
     }
     
     //#endregion
@@ -3016,7 +3669,7 @@ public class Board {
      * 
      * <p>
      * Reads the move and changes {@link boardState} according to the move information. Also modifies {@link bitState} <br>
-     * according to the changes made by the move. Then adds the played move to {@link playedMoves}. Finally sets {@link lastBoardState}<br>
+     * and the per-piece {@link pieceBitboards} according to the changes made by the move. Then adds the played move to {@link playedMoves}. Finally sets {@link lastBoardState}<br>
      * to a deep clone of the board before the move was played.
      * </p>
      * 
@@ -3036,6 +3689,7 @@ public class Board {
      * @param mv the {@link Move} to be played on to the current {@link Board}.
      */
     public void playMove(Move mv){
+        invalidateValidMoves();
         MOVE_TYPE mvType = mv.getType();
         int origin = mv.getOriginBit();
         int originRank = origin / 8;
@@ -3050,6 +3704,13 @@ public class Board {
         this.bitStateHistory.push(this.bitState);
 
         // PLAY the move
+        // Remove any captured piece from its bitboard before it is overwritten
+        int capturedPiece = this.board[destRank][destFile];
+        if (capturedPiece != 0){
+            togglePieceBit(capturedPiece, dest);
+            removeMaterial(capturedPiece);
+        }
+
         // Move the piece first, which occurs with all types of moves
         this.board[originRank][originFile] = 0;
         this.board[destRank][destFile] = piece;
@@ -3057,6 +3718,8 @@ public class Board {
         // Update occupancy mask accordingly
         setOccBit(0, origin);
         setOccBit(1, dest);
+        togglePieceBit(piece, origin);
+        togglePieceBit(piece, dest);
 
         if (mvType == MOVE_TYPE.CASTLE_LONG){
             if (piece > 0){
@@ -3067,6 +3730,8 @@ public class Board {
                 // Update occupancy mask accordingly
                 setOccBit(0, 0);
                 setOccBit(1, (destRank * 8) + (destFile + 1));
+                togglePieceBit(4, 0);
+                togglePieceBit(4, (destRank * 8) + (destFile + 1));
             }
             else{
                 this.board[7][0] = 0;
@@ -3074,6 +3739,8 @@ public class Board {
 
                 setOccBit(0, 56);
                 setOccBit(1, (destRank * 8) + (destFile + 1));
+                togglePieceBit(-4, 56);
+                togglePieceBit(-4, (destRank * 8) + (destFile + 1));
             }
         }
         else if (mvType == MOVE_TYPE.CASTLE_SHORT){
@@ -3084,6 +3751,8 @@ public class Board {
 
                 setOccBit(0, 7);
                 setOccBit(1, (destRank * 8) + (destFile - 1));
+                togglePieceBit(4, 7);
+                togglePieceBit(4, (destRank * 8) + (destFile - 1));
             }
             else{
                 this.board[7][7] = 0;
@@ -3091,6 +3760,8 @@ public class Board {
 
                 setOccBit(0, 63);
                 setOccBit(1, (destRank * 8) + (destFile - 1));
+                togglePieceBit(-4, 63);
+                togglePieceBit(-4, (destRank * 8) + (destFile - 1));
             }
         }
         else if (mvType == MOVE_TYPE.EN_PASSENT){
@@ -3098,19 +3769,30 @@ public class Board {
             if (piece > 0){
                 this.board[destRank - 1][destFile] = 0;
                 setOccBit(0, ((destRank - 1) * 8) + destFile);
+                togglePieceBit(-1, ((destRank - 1) * 8) + destFile);
+                removeMaterial(-1);
             }
             else {
                 this.board[destRank + 1][destFile] = 0;
                 setOccBit(0, ((destRank + 1) * 8) + destFile);
+                togglePieceBit(1, ((destRank + 1) * 8) + destFile);
+                removeMaterial(1);
             }
         }
         //Promotions
         else if ((mvType == MOVE_TYPE.PROMOTE_ATTACK) || (mvType == MOVE_TYPE.PROMOTE_MOVE)) {
             this.board[destRank][destFile] = mv.getPromotionPiece(); // Overwrite previous piece with selected promotion piece
+            togglePieceBit(piece, dest);
+            removeMaterial(piece);
+            if (mv.getPromotionPiece() != 0){
+                togglePieceBit(mv.getPromotionPiece(), dest);
+                addMaterial(mv.getPromotionPiece());
+            }
         }
 
         // Add move to playedMoves
-        this.playedMoves.push(mv);
+        pushPlayedMove(mv.toPacked());
+        this.doublePushSquare = lastMoveDoublePushSquare();
     }
     // Out of date Javadoc
     // /**
@@ -3158,6 +3840,182 @@ public class Board {
     //  * @param lastPlayerSign int whose sign represents the player that played the last move. Positive for white negative for black.
     //  */
     public ArrayList<int[]> updateState(int lastPlayerSign, ArrayList<int[]> lastValidMoves){
+        advanceState(lastPlayerSign);
+
+        // At this point board state reflects the starting state for the next player
+        ArrayList<int[]> newValidMoves = generateValidMoves(getTurnInt());
+        // We execute this here so that Board.state is set properly for algebraic move generation
+        evaluateGameEndConditions(newValidMoves);
+        // Record algebraic move, must occur after board.state is updated. lastValidMoves is no longer needed for this,
+        // the parameter is kept for existing callers
+        recordAlgebraicMove();
+
+        return newValidMoves;
+    }
+
+    /**
+     * Parses a move in standard algebraic notation (SAN), plays it and updates the state, in one pass.
+     *
+     * <p>
+     * Fast path for replaying games, equivalent to {@link RegexParser#validateMove(String, Board)} followed by {@link playMove}<br>
+     * and {@link updateState}. The token is parsed by hand instead of with {@link RegexParser#ALGEBRAIC_REGEX}, and resolved<br>
+     * against the cached packed legal moves of the current position. The next position's moves are generated once and<br>
+     * shared by the game end evaluation and the next call. Errors are reported through the return<br>
+     * value instead of exceptions, and leave the board unchanged.
+     * </p>
+     *
+     * <p>
+     * Stricter than the regex validator: a capture must be marked with 'x' and a non-capture must not be, and only pawns<br>
+     * may promote. A trailing '+' or '#' is accepted but not checked.
+     * </p>
+     * @param san the move in SAN, ie. "e4", "Nbd7", "exd8=Q+" or "O-O-O".
+     * @return status code:
+     * <ul>
+     * <li> {@link SAN_OK} = move played</li>
+     * <li> {@link SAN_MALFORMED} = token is not valid SAN</li>
+     * <li> {@link SAN_ILLEGAL} = no legal move matches the token</li>
+     * <li> {@link SAN_AMBIGUOUS} = more than one legal move matches the token</li>
+     * </ul>
+     */
+    public int applySan(String san){
+        int match = findSanMove(san);
+        if (match <= 0){
+            return -match;
+        }
+        int sign = getTurnInt();
+        playMove(PackedMove.toMove(match));
+        advanceState(sign);
+        int nextCount = cacheLegalMoves(-sign);
+        evaluateGameEndConditions(nextCount);
+        recordAlgebraicMove();
+
+        return SAN_OK;
+    }
+
+    /**
+     * Parses a move in standard algebraic notation (SAN) and resolves it against the legal moves of the current position,<br>
+     * without playing it.
+     *
+     * <p>
+     * Used by {@link applySan}, and by {@link GameReplayer} which plays the returned move with {@link makeMove} instead.<br>
+     * Parsing rules are the same as {@link applySan}. The legal moves of the current position are left cached.
+     * </p>
+     * @param san the move in SAN, ie. "e4", "Nbd7", "exd8=Q+" or "O-O-O".
+     * @return the matching packed move (see {@link PackedMove}), which is always positive, or the negated status code<br>
+     * ({@link SAN_MALFORMED}, {@link SAN_ILLEGAL} or {@link SAN_AMBIGUOUS}) if there is no single match.
+     */
+    public int findSanMove(String san){
+        int sign = getTurnInt();
+        int length = san.length();
+        if ((length > 0) && ((san.charAt(length - 1) == '+') || (san.charAt(length - 1) == '#'))){
+            length--;
+        }
+
+        //#region Parse
+        int piece = sign; // Signed piece value, pawn unless a piece letter is present
+        int dest = -1;
+        int dsFile = -1;
+        int dsRank = -1;
+        int promotion = 0;
+        boolean capture = false;
+        MOVE_TYPE castle = null;
+        if ((length == 5) && san.startsWith("O-O-O")){
+            castle = MOVE_TYPE.CASTLE_LONG;
+        }
+        else if ((length == 3) && san.startsWith("O-O")){
+            castle = MOVE_TYPE.CASTLE_SHORT;
+        }
+        else {
+            int start = 0;
+            int pieceIndex = (length > 0) ? "NBRQK".indexOf(san.charAt(0)) : -1;
+            if (pieceIndex >= 0){
+                piece = (pieceIndex + 2) * sign;
+                start = 1;
+            }
+            // Promotion suffix, only pawns can promote
+            if ((length - start >= 4) && (san.charAt(length - 2) == '=')){
+                int promotionIndex = "NBRQ".indexOf(san.charAt(length - 1));
+                if ((promotionIndex < 0) || (pieceIndex >= 0)){
+                    return -SAN_MALFORMED;
+                }
+                promotion = promotionIndex + 2;
+                length -= 2;
+            }
+            // Destination square is always the last two characters
+            if (length - start < 2){
+                return -SAN_MALFORMED;
+            }
+            int destFile = san.charAt(length - 2) - 'a';
+            int destRank = san.charAt(length - 1) - '1';
+            if ((destFile < 0) || (destFile > 7) || (destRank < 0) || (destRank > 7)){
+                return -SAN_MALFORMED;
+            }
+            dest = (destRank * 8) + destFile;
+            length -= 2;
+            if ((length > start) && (san.charAt(length - 1) == 'x')){
+                capture = true;
+                length--;
+            }
+            // Optional disambiguation, file then rank
+            if ((length > start) && (san.charAt(start) >= 'a') && (san.charAt(start) <= 'h')){
+                dsFile = san.charAt(start) - 'a';
+                start++;
+            }
+            if ((length > start) && (san.charAt(start) >= '1') && (san.charAt(start) <= '8')){
+                dsRank = san.charAt(start) - '1';
+                start++;
+            }
+            if (start != length){
+                return -SAN_MALFORMED;
+            }
+        }
+        //#endregion
+
+        //#region Resolve against legal moves
+        int count = cacheLegalMoves(sign);
+        int match = 0;
+        int matches = 0;
+        for (int i = 0; i < count; i++){
+            int move = this.cachedMoves[i];
+            MOVE_TYPE type = PackedMove.getType(move);
+            if (castle != null){
+                if (type != castle){
+                    continue;
+                }
+            }
+            else if ((PackedMove.getPiece(move) != piece) || (PackedMove.getDestination(move) != dest) ||
+                     (type == MOVE_TYPE.CASTLE_SHORT) || (type == MOVE_TYPE.CASTLE_LONG) ||
+                     ((dsFile >= 0) && ((PackedMove.getOrigin(move) % 8) != dsFile)) ||
+                     ((dsRank >= 0) && ((PackedMove.getOrigin(move) / 8) != dsRank)) ||
+                     (Math.abs(PackedMove.getPromotionPiece(move)) != promotion) ||
+                     (PackedMove.isCapture(move) != capture)){
+                continue;
+            }
+            match = move;
+            matches++;
+        }
+        if (matches == 0){
+            return -SAN_ILLEGAL;
+        }
+        else if (matches > 1){
+            return -SAN_AMBIGUOUS;
+        }
+        //#endregion
+
+        return match;
+    }
+
+    /**
+     * Updates every state value that follows from the move just played with {@link playMove}, and flips the turn.
+     *
+     * <p>
+     * Shared by {@link updateState} and {@link applySan}: pushes the state histories, sets {@link state} to CHECK or IN_PLAY,<br>
+     * removes lost castling rights, updates the half clock and zobrist hash, and re-evaluates the optional draw flags.<br>
+     * Game end conditions and the algebraic history are left to the caller, as both need the next player's moves.
+     * </p>
+     * @param lastPlayerSign int whose sign represents the player that played the last move. Positive for white negative for black.
+     */
+    private void advanceState(int lastPlayerSign){
         boolean shortCastleRights = (lastPlayerSign > 0) ? whiteShort : blackShort;
         boolean longCastleRights = (lastPlayerSign > 0) ? whiteLong : blackLong;
         int shortRookSquare = (lastPlayerSign > 0) ? 7 : 63;
@@ -3167,8 +4025,8 @@ public class Board {
         this.stateHistory.push(this.state);
         this.halfClockHistory.push(this.halfClock);
 
-        // Check/Checkmate
-        if (getOpponentChecks(lastPlayerSign * -1).size() > 0){
+        // Check/Checkmate, the opponent is in check if any of the last player's pieces attack their king
+        if (isInCheck(lastPlayerSign * -1)){
             setState(BOARD_STATE.CHECK);
         }
         else {
@@ -3178,16 +4036,16 @@ public class Board {
         // Updating Castling rights
         // If any castling right is changed, its corresponding zobrist flag is set to true, causing updateZobrist() to update the hash accordingly
         if (shortCastleRights || longCastleRights){
-            Move lastMove = peekMove();
-            if (lastMove != null){
-                int lastMovePiece = Math.abs(lastMove.getPiece());
+            int lastMove = lastPlayedMove();
+            if (lastMove != 0){
+                int lastMovePiece = Math.abs(PackedMove.getPiece(lastMove));
                 // If either castling right is active, and the move is a King, set both rights to false
-                if ((Math.abs(lastMove.getPiece()) == 6)){
+                if (lastMovePiece == 6){
                     setShortCastleRights(lastPlayerSign, false);
                     setLongCastleRights(lastPlayerSign, false);
                 }
                 else {
-                    int lastMoveOrigin = lastMove.getOriginBit();
+                    int lastMoveOrigin = PackedMove.getOrigin(lastMove);
                     // If either castling right is active, check if rook moved from corresponding origin square
                     if (lastMovePiece == 4){
                         if (shortCastleRights && (lastMoveOrigin == shortRookSquare)){
@@ -3201,6 +4059,18 @@ public class Board {
             }
         } // End castling IF
 
+        // Capturing a rook on its starting square removes the opponent's castling right on that side
+        int lastDest = PackedMove.getDestination(lastPlayedMove());
+        if (Math.abs(this.boardHistory.peek()[lastDest / 8][lastDest % 8]) == 4){
+            int opponentSign = lastPlayerSign * -1;
+            if (lastDest == ((opponentSign > 0) ? 7 : 63)){
+                setShortCastleRights(opponentSign, false);
+            }
+            else if (lastDest == ((opponentSign > 0) ? 0 : 56)){
+                setLongCastleRights(opponentSign, false);
+            }
+        }
+
         // Update halfClock based on previous turn
         updateHalfClock();
 
@@ -3210,7 +4080,8 @@ public class Board {
         
         // Update optional draw flags
         this.fiftyMoveDrawAvailable = checkNMoveDraw(50);
-        this.threeFoldDrawAvailable = checkNFoldRepeat(3);
+        this.repetitionCount = countRepetitions();
+        this.threeFoldDrawAvailable = this.repetitionCount >= 3;
         
         if (this.whitesTurn){
             this.whitesTurn = false;
@@ -3218,15 +4089,6 @@ public class Board {
         else {
             this.whitesTurn = true;
         }
-
-        // At this point board state reflects the starting state for the next player
-        ArrayList<int[]> newValidMoves = generateValidMoves(getTurnInt());
-        // We execute this here so that Board.state is set properly for algebraic move generation
-        evaluateGameEndConditions(newValidMoves);
-        // Record algebraic move, must occur after board.state is updated
-        recordAlgebraicMove(lastValidMoves);
-
-        return newValidMoves;
     }
     
     // We can generate valid moves for the next player before this method runs
@@ -3270,9 +4132,14 @@ public class Board {
      * </ol>
      */
     public int evaluateGameEndConditions(ArrayList<int[]> validMoves){
+        return evaluateGameEndConditions(validMoves.size());
+    }
+
+    // Game end evaluation only needs to know whether any moves exist, so applySan can pass its packed move count
+    private int evaluateGameEndConditions(int validMoveCount){
         int turn = this.getTurnInt();
         // Stalemate and Checkmate detection based on provided moves
-        if (validMoves.size() == 0){
+        if (validMoveCount == 0){
             if (this.state == BOARD_STATE.CHECK){
                 System.out.println("Checkmate!"); // Replace with proper game-ending code
                 this.state = turn > 0 ? BOARD_STATE.B_MATE : BOARD_STATE.W_MATE;
@@ -3296,7 +4163,7 @@ public class Board {
             System.out.println("75 move draw!");
             return 4;
         }
-        else if (this.threeFoldDrawAvailable && checkNFoldRepeat(5)){
+        else if (this.repetitionCount >= 5){
             System.out.println("Five fold repeat draw!");
             this.state = BOARD_STATE.FIVE_REPEAT_DRAW;
             return 5;
@@ -3306,10 +4173,13 @@ public class Board {
     }
 
     public void undoLastMove(){
-        if (playedMoves.size() > 0){
+        if (this.playedMovesSize > 0){
+            invalidateValidMoves();
             boolean[] lastCastling = castlingHistory.pop();
-            playedMoves.pop();
+            this.playedMovesSize--;
+            this.doublePushSquare = lastMoveDoublePushSquare();
             epHashHistory.pop();
+            this.epHash = (epHashHistory.size() > 0) ? epHashHistory.peek() : 0L;
             this.whiteLong = lastCastling[0];
             this.whiteShort = lastCastling[1];
             this.blackLong = lastCastling[2];
@@ -3320,16 +4190,18 @@ public class Board {
             // Thus the zobristHistory must be popped once, and this.zobristHistory set to the next occurence:
             // zHistory(0) -> play -> zHistory(1) -> play -> zHistory(2) -> undo -> zHistory(1) -> play -> zHistory(2)
             // Must restore the zobristHash to the point BEFORE the last move was played.
-            zobristHistory.pop();
-            this.zobristHash = zobristHistory.peek();
+            this.zobristHistorySize--;
+            this.zobristHash = this.zobristHistory[this.zobristHistorySize - 1];
     
             this.board = boardHistory.pop();
+            syncPieceBitboards();
             this.state = stateHistory.pop();
             this.bitState = bitStateHistory.pop();
             this.halfClock = halfClockHistory.pop();
     
             this.fiftyMoveDrawAvailable = checkNMoveDraw(50);
-            this.threeFoldDrawAvailable = checkNFoldRepeat(3);
+            this.repetitionCount = countRepetitions();
+            this.threeFoldDrawAvailable = this.repetitionCount >= 3;
 
             this.algebraicHistory.remove(this.algebraicHistory.size() - 1);
     
@@ -3337,6 +4209,233 @@ public class Board {
         }
     
     }
+
+    /**
+     * Plays a {@link PackedMove} on to the board, recording only what is needed to take it back with {@link unmakeMove}.
+     *
+     * <p>
+     * Lightweight alternative to {@link playMove} + {@link updateState} for perft, search and fast replay. The board,<br>
+     * bitboards, castling rights, en passent square, half clock, turn and {@link zobristHash} are all updated incrementally<br>
+     * and the previous values pushed on to a preallocated primitive undo stack, so a make/unmake pair costs the same<br>
+     * regardless of game length and allocates nothing (the stack only grows past 256 plies).
+     * </p>
+     *
+     * <p>
+     * Unlike {@link playMove} nothing is added to {@link playedMoves} or the algebraic history, and {@link state} and the<br>
+     * draw flags are not evaluated. The new hash is pushed on to {@link zobristHistory} so {@link countRepetitions} still<br>
+     * sees positions reached during a search. Every makeMove must be taken back with {@link unmakeMove} before<br>
+     * {@link playMove} or {@link undoLastMove} are used again. The move is assumed to be legal, ie. generated by<br>
+     * {@link generateValidMoves(int, int[])}.
+     * </p>
+     * @param move the {@link PackedMove} to play.
+     */
+    public void makeMove(int move){
+        int origin = PackedMove.getOrigin(move);
+        int dest = PackedMove.getDestination(move);
+        int piece = PackedMove.getPiece(move);
+        MOVE_TYPE type = PackedMove.getType(move);
+        int sign = (piece > 0) ? 1 : -1;
+        int captured = (type == MOVE_TYPE.EN_PASSENT) ? -sign : this.board[dest / 8][dest % 8];
+
+        //#region Record undo information
+        if ((this.undoDepth + 1) * UNDO_INT_STRIDE > this.undoInts.length){
+            this.undoInts = Arrays.copyOf(this.undoInts, this.undoInts.length * 2);
+            this.undoLongs = Arrays.copyOf(this.undoLongs, this.undoLongs.length * 2);
+        }
+        int intBase = this.undoDepth * UNDO_INT_STRIDE;
+        int longBase = this.undoDepth * UNDO_LONG_STRIDE;
+        this.undoInts[intBase] = move;
+        this.undoInts[intBase + 1] = captured;
+        this.undoInts[intBase + 2] = getCastlingBits();
+        this.undoInts[intBase + 3] = this.halfClock;
+        this.undoInts[intBase + 4] = this.doublePushSquare;
+        this.undoLongs[longBase] = this.zobristHash;
+        this.undoLongs[longBase + 1] = this.epHash;
+        this.undoDepth++;
+        //#endregion
+
+        //#region Pieces
+        long hash = this.zobristHash;
+        if (type == MOVE_TYPE.EN_PASSENT){
+            int capturedSquare = dest - (8 * sign);
+            this.board[capturedSquare / 8][capturedSquare % 8] = 0;
+            togglePieceBit(captured, capturedSquare);
+            this.bitState &= ~(1L << (63 - capturedSquare));
+            hash ^= Zobrist.pieceSquare(captured, capturedSquare);
+        }
+        else if (captured != 0){
+            // Destination stays occupied, only the piece bitboards change
+            togglePieceBit(captured, dest);
+            hash ^= Zobrist.pieceSquare(captured, dest);
+        }
+        if (captured != 0){
+            removeMaterial(captured);
+        }
+
+        int placed = PackedMove.isPromotion(move) ? PackedMove.getPromotionPiece(move) : piece;
+        this.board[origin / 8][origin % 8] = 0;
+        this.board[dest / 8][dest % 8] = placed;
+        togglePieceBit(piece, origin);
+        togglePieceBit(placed, dest);
+        if (placed != piece){
+            removeMaterial(piece);
+            addMaterial(placed);
+        }
+        this.bitState = (this.bitState & ~(1L << (63 - origin))) | (1L << (63 - dest));
+        hash ^= Zobrist.pieceSquare(piece, origin) ^ Zobrist.pieceSquare(placed, dest);
+
+        if (type == MOVE_TYPE.CASTLE_SHORT){
+            hash ^= moveRook(4 * sign, dest + 1, dest - 1);
+        }
+        else if (type == MOVE_TYPE.CASTLE_LONG){
+            hash ^= moveRook(4 * sign, dest - 2, dest + 1);
+        }
+        //#endregion
+
+        //#region Castling rights
+        // King moves lose both rights, a rook leaving or being captured on its starting square loses that side
+        int rights = getCastlingBits();
+        int lost = castlingBitsLostFrom(origin) | castlingBitsLostFrom(dest);
+        if (Math.abs(piece) == 6){
+            lost |= (sign > 0) ? 0b1100 : 0b0011;
+        }
+        if ((rights & lost) != 0){
+            hash ^= castlingHash(rights) ^ castlingHash(rights & ~lost);
+            setCastlingBits(rights & ~lost);
+        }
+        //#endregion
+
+        this.halfClock = ((Math.abs(piece) == 1) || (captured != 0)) ? 0 : this.halfClock + 1;
+        this.doublePushSquare = ((Math.abs(piece) == 1) && (Math.abs(dest - origin) == 16)) ? dest : -1;
+        this.whitesTurn = !this.whitesTurn;
+        hash ^= Zobrist.WHITE_TURN;
+
+        // En passent hash is only included when the player to move can actually capture en passent
+        hash ^= this.epHash;
+        long epMask = getPlayerEPMask(-sign);
+        this.epHash = (epMask != 0) ? Zobrist.enPassent((63 - Long.numberOfTrailingZeros(epMask)) % 8) : 0L;
+        hash ^= this.epHash;
+
+        this.zobristHash = hash;
+        pushZobristHistory(hash);
+    }
+
+    /**
+     * Takes back the last move played with {@link makeMove}, restoring the board, bitboards and every state value<br>
+     * recorded on the undo stack.
+     */
+    public void unmakeMove(){
+        if (this.undoDepth == 0){
+            System.out.println("unmakeMove(): No moves to unmake");
+            return;
+        }
+        this.undoDepth--;
+        int intBase = this.undoDepth * UNDO_INT_STRIDE;
+        int longBase = this.undoDepth * UNDO_LONG_STRIDE;
+        int move = this.undoInts[intBase];
+        int captured = this.undoInts[intBase + 1];
+
+        int origin = PackedMove.getOrigin(move);
+        int dest = PackedMove.getDestination(move);
+        int piece = PackedMove.getPiece(move);
+        MOVE_TYPE type = PackedMove.getType(move);
+        int sign = (piece > 0) ? 1 : -1;
+        int placed = PackedMove.isPromotion(move) ? PackedMove.getPromotionPiece(move) : piece;
+
+        if (type == MOVE_TYPE.CASTLE_SHORT){
+            moveRook(4 * sign, dest - 1, dest + 1);
+        }
+        else if (type == MOVE_TYPE.CASTLE_LONG){
+            moveRook(4 * sign, dest + 1, dest - 2);
+        }
+
+        this.board[dest / 8][dest % 8] = 0;
+        this.board[origin / 8][origin % 8] = piece;
+        togglePieceBit(placed, dest);
+        togglePieceBit(piece, origin);
+        if (placed != piece){
+            removeMaterial(placed);
+            addMaterial(piece);
+        }
+        if (captured != 0){
+            addMaterial(captured);
+        }
+        this.bitState = (this.bitState & ~(1L << (63 - dest))) | (1L << (63 - origin));
+
+        if (type == MOVE_TYPE.EN_PASSENT){
+            int capturedSquare = dest - (8 * sign);
+            this.board[capturedSquare / 8][capturedSquare % 8] = captured;
+            togglePieceBit(captured, capturedSquare);
+            this.bitState |= (1L << (63 - capturedSquare));
+        }
+        else if (captured != 0){
+            this.board[dest / 8][dest % 8] = captured;
+            togglePieceBit(captured, dest);
+            this.bitState |= (1L << (63 - dest));
+        }
+
+        setCastlingBits(this.undoInts[intBase + 2]);
+        this.halfClock = this.undoInts[intBase + 3];
+        this.doublePushSquare = this.undoInts[intBase + 4];
+        this.zobristHash = this.undoLongs[longBase];
+        this.epHash = this.undoLongs[longBase + 1];
+        this.zobristHistorySize--;
+        this.whitesTurn = !this.whitesTurn;
+    }
+
+    /**
+     * Returns the move leading to the current position in {@link PackedMove} encoding: the last {@link makeMove} not<br>
+     * taken back yet, otherwise the last move played with {@link playMove}. 0 if no move has been played.
+     */
+    public int peekMadeMove(){
+        return (this.undoDepth > 0) ? this.undoInts[(this.undoDepth - 1) * UNDO_INT_STRIDE] : lastPlayedMove();
+    }
+
+    /**
+     * Moves a rook between two squares for castling in {@link makeMove} and {@link unmakeMove}.
+     *
+     * @return the zobrist hash delta of the rook move.
+     */
+    private long moveRook(int rook, int from, int to){
+        this.board[from / 8][from % 8] = 0;
+        this.board[to / 8][to % 8] = rook;
+        togglePieceBit(rook, from);
+        togglePieceBit(rook, to);
+        this.bitState = (this.bitState & ~(1L << (63 - from))) | (1L << (63 - to));
+        return Zobrist.pieceSquare(rook, from) ^ Zobrist.pieceSquare(rook, to);
+    }
+
+    // Castling rights packed as 4 bits: whiteLong, whiteShort, blackLong, blackShort from the most significant bit
+    private int getCastlingBits(){
+        return (this.whiteLong ? 0b1000 : 0) | (this.whiteShort ? 0b0100 : 0) | (this.blackLong ? 0b0010 : 0) | (this.blackShort ? 0b0001 : 0);
+    }
+
+    private void setCastlingBits(int rights){
+        this.whiteLong = (rights & 0b1000) != 0;
+        this.whiteShort = (rights & 0b0100) != 0;
+        this.blackLong = (rights & 0b0010) != 0;
+        this.blackShort = (rights & 0b0001) != 0;
+    }
+
+    // Castling right lost when a piece leaves or arrives on a rook starting square
+    private static int castlingBitsLostFrom(int square){
+        switch (square){
+            case 0: return 0b1000;
+            case 7: return 0b0100;
+            case 56: return 0b0010;
+            case 63: return 0b0001;
+            default: return 0;
+        }
+    }
+
+    private long castlingHash(int rights){
+        long retHash = 0L;
+        if ((rights & 0b1000) != 0){retHash ^= Zobrist.WHITE_LONG;}
+        if ((rights & 0b0100) != 0){retHash ^= Zobrist.WHITE_SHORT;}
+        if ((rights & 0b0010) != 0){retHash ^= Zobrist.BLACK_LONG;}
+        if ((rights & 0b0001) != 0){retHash ^= Zobrist.BLACK_SHORT;}
+        return retHash;
+    }
     //#endregion
 
     //#region Object method overrides
@@ -0,0 +1,129 @@
+package com.YCorp.chessApp.client.engine;
+
+import java.util.List;
+
+import com.YCorp.chessApp.client.engine.Board.BOARD_STATE;
+
+/**
+ * Replay-only wrapper around a single reused {@link Board}, for validating large numbers of games in bulk.
+ *
+ * <p>
+ * {@link com.YCorp.chessApp.client.parser.RegexParser#validateMove(java.util.ArrayList, Board)} and {@link Board#applySan}<br>
+ * both drive the full game loop, which keeps every undo history, records the algebraic history and prints game end<br>
+ * messages, and each game needs a new Board. GameReplayer only resolves each SAN token with {@link Board#findSanMove} and plays it with<br>
+ * {@link Board#makeMove}, so a ply costs one legal move generation and an incremental update. No {@link Move} objects,<br>
+ * board copies or strings are created, and nothing is printed. {@link reset} clears the Board in place between games.
+ * </p>
+ *
+ * <p>
+ * Since makeMove does not keep {@link Board#getState()} up to date, the state of the final position is computed on<br>
+ * demand by {@link evaluateState}. The game is not stopped at a game ending position; moves after checkmate or<br>
+ * stalemate fail as illegal as there are none, while moves after a forced draw are still accepted.
+ * </p>
+ *
+ * <p>
+ * Like Board, a GameReplayer is not safe to share between threads, use one per thread.
+ * </p>
+ */
+public final class GameReplayer {
+    private final Board board;
+
+    public GameReplayer(){
+        this.board = new Board();
+    }
+
+    /**
+     * Returns the board to the starting position, ready for the next game.
+     */
+    public void reset(){
+        this.board.reset();
+    }
+
+    /**
+     * Plays a single move in standard algebraic notation on to the current position.
+     *
+     * @param san the move in SAN, see {@link Board#applySan} for the accepted format.
+     * @return {@link Board#SAN_OK} if the move was played, otherwise {@link Board#SAN_MALFORMED}, {@link Board#SAN_ILLEGAL}<br>
+     * or {@link Board#SAN_AMBIGUOUS}, in which case the position is unchanged.
+     */
+    public int applySan(String san){
+        int move = this.board.findSanMove(san);
+        if (move <= 0){
+            return -move;
+        }
+        this.board.makeMove(move);
+        return Board.SAN_OK;
+    }
+
+    /**
+     * Resets the board and replays a full game, stopping at the first move that cannot be played.
+     *
+     * <p>
+     * {@link getPly} is the index of the failing move when the returned status is not {@link Board#SAN_OK}.
+     * </p>
+     * @param game every move of the game in SAN, in the order played.
+     * @return status code of the first failing move, {@link Board#SAN_OK} if every move was played.
+     */
+    public int replay(List<String> game){
+        reset();
+        for (int i = 0; i < game.size(); i++){
+            int status = applySan(game.get(i));
+            if (status != Board.SAN_OK){
+                return status;
+            }
+        }
+        return Board.SAN_OK;
+    }
+
+    /**
+     * Computes the state of the current position, as {@link Board#evaluateGameEndConditions} would set it but without<br>
+     * printing anything.
+     *
+     * @return the {@link BOARD_STATE} of the current position.
+     */
+    public BOARD_STATE evaluateState(){
+        int sign = this.board.getTurnInt();
+        boolean check = this.board.isInCheck(sign);
+        if (!this.board.hasAnyLegalMove(sign)){
+            if (check){
+                return (sign > 0) ? BOARD_STATE.B_MATE : BOARD_STATE.W_MATE;
+            }
+            return BOARD_STATE.STALEMATE;
+        }
+        else if (this.board.checkInsufficientMaterial()){
+            return BOARD_STATE.MATERIAL_DRAW;
+        }
+        else if (this.board.checkNMoveDraw(75)){
+            return BOARD_STATE.SEVENTY_FIVE_DRAW;
+        }
+        else if (this.board.countRepetitions() >= 5){
+            return BOARD_STATE.FIVE_REPEAT_DRAW;
+        }
+        return check ? BOARD_STATE.CHECK : BOARD_STATE.IN_PLAY;
+    }
+
+    //#region Getters
+    /**
+     * Returns the number of moves played since the last {@link reset}.
+     */
+    public int getPly(){
+        return this.board.getZobristHistoryLength() - 1;
+    }
+
+    public long getZobrist(){
+        return this.board.getZobrist();
+    }
+
+    public int[][] getBoard(){
+        return this.board.getBoard();
+    }
+
+    public int getHalfClock(){
+        return this.board.getHalfClock();
+    }
+
+    public int getTurnInt(){
+        return this.board.getTurnInt();
+    }
+    //#endregion
+}
@@ -0,0 +1,234 @@
+package com.YCorp.chessApp.client.engine;
+
+/**
+ * Precomputed sliding piece attack tables indexed by magic multiplication.
+ *
+ * <p>
+ * Replaces the per-call hyperbolic quintessence ray blocking done by {@link Board#hypQuint} with a single<br>
+ * table lookup. For each square a 'relevant occupancy' mask is stored (the rook or bishop rays from that square<br>
+ * excluding the board edges, as an edge square can never block anything behind it). The blockers on that mask are<br>
+ * multiplied by a per-square magic number and the top bits of the product are used as an index into a table holding<br>
+ * the precomputed blocked attack mask for that exact blocker arrangement.
+ * </p>
+ *
+ * <p>
+ * All tables are built once per JVM in the static initializer of this class. Magic numbers are searched for at class<br>
+ * initialization with a fixed seed, so the tables are identical between runs. All masks use the RLERF encoding<br>
+ * described in {@link Board} (see <a href="Board.html#RLERF">RLERF encoding</a>), magic multiplication does not care<br>
+ * about bit order so the tables are built directly in RLERF.
+ * </p>
+ */
+public class MagicBitboard {
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+
+    // Flat attack tables, each square owns a 2^(64 - shift) slice starting at its offset
+    private static final long[] ROOK_ATTACKS;
+    private static final long[] BISHOP_ATTACKS;
+
+    private static final int[][] ROOK_DIRECTIONS = new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Fixed seed so magic numbers (and therefore table layouts) are reproducible between runs
+    private static final long MAGIC_SEED = 0x2545F4914F6CDD1DL;
+
+    static {
+        int rookSize = 0;
+        int bishopSize = 0;
+        for (int square = 0; square < 64; square++){
+            ROOK_MASK[square] = generateRelevantMask(square, ROOK_DIRECTIONS);
+            BISHOP_MASK[square] = generateRelevantMask(square, BISHOP_DIRECTIONS);
+            ROOK_SHIFT[square] = 64 - Long.bitCount(ROOK_MASK[square]);
+            BISHOP_SHIFT[square] = 64 - Long.bitCount(BISHOP_MASK[square]);
+            ROOK_OFFSET[square] = rookSize;
+            BISHOP_OFFSET[square] = bishopSize;
+            rookSize += 1 << Long.bitCount(ROOK_MASK[square]);
+            bishopSize += 1 << Long.bitCount(BISHOP_MASK[square]);
+        }
+
+        ROOK_ATTACKS = new long[rookSize];
+        BISHOP_ATTACKS = new long[bishopSize];
+
+        long[] seed = new long[]{MAGIC_SEED};
+        for (int square = 0; square < 64; square++){
+            ROOK_MAGIC[square] = findMagic(square, ROOK_MASK[square], ROOK_SHIFT[square], ROOK_DIRECTIONS, ROOK_ATTACKS, ROOK_OFFSET[square], seed);
+            BISHOP_MAGIC[square] = findMagic(square, BISHOP_MASK[square], BISHOP_SHIFT[square], BISHOP_DIRECTIONS, BISHOP_ATTACKS, BISHOP_OFFSET[square], seed);
+        }
+    }
+
+    //#region Lookups
+    /**
+     * Returns the 'blocked capture' rook attack mask for the given square and board occupancy.
+     *
+     * <p>
+     * Equivalent to {@link Board#generateValidStraightRayMask}, the first blocker on each ray is included<br>
+     * regardless of ownership and the origin square is not.
+     * </p>
+     * @param square index of the origin square in RLERF encoding (see <a href="Board.html#RLERF">RLERF encoding</a> in {@link Board}).
+     * @param occupancy full board occupancy mask in RLERF encoding.
+     * @return long RLERF mask of all squares the rook attacks.
+     */
+    public static long rookAttacks(int square, long occupancy){
+        return ROOK_ATTACKS[ROOK_OFFSET[square] + (int)(((occupancy & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    /**
+     * Returns the 'blocked capture' bishop attack mask for the given square and board occupancy.
+     *
+     * <p>
+     * Equivalent to {@link Board#generateValidDiagonalRayMask}, the first blocker on each ray is included<br>
+     * regardless of ownership and the origin square is not.
+     * </p>
+     * @param square index of the origin square in RLERF encoding (see <a href="Board.html#RLERF">RLERF encoding</a> in {@link Board}).
+     * @param occupancy full board occupancy mask in RLERF encoding.
+     * @return long RLERF mask of all squares the bishop attacks.
+     */
+    public static long bishopAttacks(int square, long occupancy){
+        return BISHOP_ATTACKS[BISHOP_OFFSET[square] + (int)(((occupancy & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    /**
+     * Returns the 'blocked capture' queen attack mask for the given square and board occupancy, the union<br>
+     * of {@link rookAttacks} and {@link bishopAttacks}.
+     *
+     * @param square index of the origin square in RLERF encoding (see <a href="Board.html#RLERF">RLERF encoding</a> in {@link Board}).
+     * @param occupancy full board occupancy mask in RLERF encoding.
+     * @return long RLERF mask of all squares the queen attacks.
+     */
+    public static long queenAttacks(int square, long occupancy){
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+    //#endregion
+
+    //#region Table generation
+    /**
+     * Generates the relevant occupancy mask for a square, all squares along the provided directions<br>
+     * excluding the origin square and the last square of each ray.
+     *
+     * @param square origin square index in RLERF encoding.
+     * @param directions int[]{rankStep, fileStep} pairs describing each ray.
+     * @return long RLERF mask of the squares whose occupancy can affect the attack set.
+     */
+    private static long generateRelevantMask(int square, int[][] directions){
+        long retMask = 0L;
+        int rank = square / 8;
+        int file = square % 8;
+
+        for (int[] dir : directions){
+            int r = rank + dir[0];
+            int f = file + dir[1];
+            // Only add the square if the ray continues past it
+            while ((r + dir[0] >= 0) && (r + dir[0] < 8) && (f + dir[1] >= 0) && (f + dir[1] < 8)){
+                retMask |= (1L << (63 - ((r * 8) + f)));
+                r += dir[0];
+                f += dir[1];
+            }
+        }
+        return retMask;
+    }
+
+    /**
+     * Slow reference attack generation used only to fill the tables, walks each ray square by square<br>
+     * and stops after the first occupied square.
+     *
+     * @param square origin square index in RLERF encoding.
+     * @param occupancy RLERF occupancy mask.
+     * @param directions int[]{rankStep, fileStep} pairs describing each ray.
+     * @return long RLERF mask of attacked squares.
+     */
+    private static long generateSlowAttacks(int square, long occupancy, int[][] directions){
+        long retMask = 0L;
+        int rank = square / 8;
+        int file = square % 8;
+
+        for (int[] dir : directions){
+            int r = rank + dir[0];
+            int f = file + dir[1];
+            while (r >= 0 && r < 8 && f >= 0 && f < 8){
+                long bit = (1L << (63 - ((r * 8) + f)));
+                retMask |= bit;
+                if ((occupancy & bit) != 0){
+                    break;
+                }
+                r += dir[0];
+                f += dir[1];
+            }
+        }
+        return retMask;
+    }
+
+    /**
+     * Searches for a magic number that maps every blocker subset of the mask to a table index without<br>
+     * destructive collisions, then fills the square's slice of the attack table.
+     *
+     * <p>
+     * Every subset of the mask is enumerated with the Carry-Rippler trick (subset = (subset - mask) &amp; mask).<br>
+     * Candidate magics are sparse random numbers (AND of three randoms), two subsets may share an index only<br>
+     * if their attack sets are identical (constructive collision).
+     * </p>
+     *
+     * @return the magic number found for this square.
+     */
+    private static long findMagic(int square, long mask, int shift, int[][] directions, long[] table, int offset, long[] seed){
+        int bits = 64 - shift;
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        int[] epoch = new int[size];
+        long[] used = new long[size];
+
+        // Enumerate all blocker subsets and their reference attacks
+        long subset = 0L;
+        int count = 0;
+        do {
+            occupancies[count] = subset;
+            attacks[count] = generateSlowAttacks(square, subset, directions);
+            count++;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        for (int attempt = 1; ; attempt++){
+            long magic = nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+            // Quickly reject magics that don't spread the mask into the high bits
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6){
+                continue;
+            }
+
+            boolean failed = false;
+            for (int i = 0; i < count && !failed; i++){
+                int index = (int)((occupancies[i] * magic) >>> shift);
+                if (epoch[index] != attempt){
+                    epoch[index] = attempt;
+                    used[index] = attacks[i];
+                }
+                else if (used[index] != attacks[i]){
+                    failed = true;
+                }
+            }
+
+            if (!failed){
+                for (int i = 0; i < count; i++){
+                    table[offset + (int)((occupancies[i] * magic) >>> shift)] = attacks[i];
+                }
+                return magic;
+            }
+        }
+    }
+
+    // xorshift64* generator, state is held in a single element array so it carries over between squares
+    private static long nextRandom(long[] seed){
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+    //#endregion
+}
@@ -10,6 +10,11 @@ import java.util.Map;
  * on an instantiated Move object are required, and can just be taken 'as is' assuming it is the correct<br>
  * order in relation to other played moves.
  * </p>
+ *
+ * <p>
+ * A Move is a view over a single {@link PackedMove} int, which is the form {@link Board} stores played moves and move<br>
+ * lists in. Move objects are only built on demand for callers that want named getters, ie. the parser and UI.
+ * </p>
  */
 public class Move {
     /**
@@ -24,16 +29,10 @@ public class Move {
     public enum MOVE_TYPE {
         MOVE, ATTACK, CASTLE_LONG, CASTLE_SHORT, EN_PASSENT, PROMOTE_MOVE, PROMOTE_ATTACK
     }
-    private int piece;
-    private int promotionPiece;
-    private MOVE_TYPE type;
-    private int originBit;
-    private int destBit;
-    
-    private int originRank;
-    private int originFile;
-    private int destRank;
-    private int destFile;
+    /**
+     * The move in {@link PackedMove} encoding, every getter decodes from it.
+     */
+    private int packed;
 
     public static final Map<Integer, String> PIECE_INT_TO_STRING = new HashMap<>(){{
         put(1, "");
@@ -51,77 +50,72 @@ public class Move {
     }};
 
     public Move(int pieceValue, int originBitIndex, int destinationBitIndex, MOVE_TYPE type){
-        originRank = originBitIndex / 8;
-        originFile = originBitIndex % 8;
-        destRank = destinationBitIndex / 8;
-        destFile = destinationBitIndex % 8;
-
-        originBit = originBitIndex;
-        destBit = destinationBitIndex;
-
-        piece = pieceValue; 
-
-        this.type = type;
+        this.packed = PackedMove.pack(pieceValue, originBitIndex, destinationBitIndex, type);
     };
 
     
     public Move(int pieceValue, int originBitIndex, int destinationBitIndex, MOVE_TYPE type, int promotionPiece){
-        originRank = originBitIndex / 8;
-        originFile = originBitIndex % 8;
-        destRank = destinationBitIndex / 8;
-        destFile = destinationBitIndex % 8;
-
-        originBit = originBitIndex;
-        destBit = destinationBitIndex;
-
-        piece = pieceValue; 
+        this.packed = PackedMove.pack(pieceValue, originBitIndex, destinationBitIndex, type, promotionPiece);
+    }
 
-        this.type = type;
+    /**
+     * Creates a Move view of a {@link PackedMove}, ie. one read back from {@link Board#peekMove()} or a packed move list.
+     *
+     * @param packedMove the move in {@link PackedMove} encoding.
+     */
+    public Move(int packedMove){
+        this.packed = packedMove;
+    }
 
-        this.promotionPiece = promotionPiece;
+    /**
+     * Returns the move in {@link PackedMove} encoding, the form {@link Board} stores played moves in.
+     */
+    public int toPacked(){
+        return this.packed;
     }
 
     public int getOriginRank(){
-        return this.originRank;
+        return PackedMove.getOrigin(this.packed) / 8;
     }
 
     public int getOriginFile(){
-        return this.originFile;
+        return PackedMove.getOrigin(this.packed) % 8;
     }
 
     public int getDestinationRank(){
-        return this.destRank;
+        return PackedMove.getDestination(this.packed) / 8;
     }
 
     public int getDestinationFile(){
-        return this.destFile;
+        return PackedMove.getDestination(this.packed) % 8;
     }
 
     public int getOriginBit(){
-        return this.originBit;
+        return PackedMove.getOrigin(this.packed);
     }
 
     public int getDestBit(){
-        return this.destBit;
+        return PackedMove.getDestination(this.packed);
     }
 
     public int getPiece(){
-        return this.piece;
+        return PackedMove.getPiece(this.packed);
     }
 
     public MOVE_TYPE getType(){
-        return this.type;
+        return PackedMove.getType(this.packed);
     }
 
     public int getPromotionPiece(){
-        if (this.promotionPiece == 0){
+        MOVE_TYPE type = getType();
+        if (!PackedMove.isPromotion(this.packed)){
             System.out.println("getPromotionPiece() invoked for a non-initialized promotion piece");
         }
         
-        if (!(this.type == MOVE_TYPE.PROMOTE_ATTACK || this.type == MOVE_TYPE.PROMOTE_MOVE)){
+        if (!(type == MOVE_TYPE.PROMOTE_ATTACK || type == MOVE_TYPE.PROMOTE_MOVE)){
             System.out.println("getPromotionPiece() invoked for a non-promotion type move");
         }
-        return this.promotionPiece;
+        return PackedMove.getPromotionPiece(this.packed);
     }
 
     public void setPromotionPiece(int promotionPiece){
@@ -129,39 +123,34 @@ public class Move {
             System.out.println("setPromotionPiece(): Invalid piece identifier provided");
         }
         else {
-            this.promotionPiece = promotionPiece;
+            this.packed = PackedMove.withPromotionPiece(this.packed, promotionPiece);
         }
     }
 
+    // The promotion piece is not part of move identity, as before the packed encoding
     @Override
     public boolean equals(Object obj){
-        Move temp;
         if (obj instanceof Move){
-            temp = (Move)obj;
-            if (
-                (this.piece == temp.getPiece()) &&
-                (this.originBit == temp.getOriginBit()) &&
-                (this.destBit == temp.getDestBit()) &&
-                (this.type == temp.getType())
-            ){
-                return true;
-            }
-            else {
-                return false;
-            }
+            Move temp = (Move)obj;
+            return PackedMove.withPromotionPiece(this.packed, 0) == PackedMove.withPromotionPiece(temp.packed, 0);
         }
         else {
             return false;
         }
     }
 
+    @Override
+    public int hashCode(){
+        return PackedMove.withPromotionPiece(this.packed, 0);
+    }
+
     @Override
     public String toString(){
-        return "Piece: " + piece + "\nOrigin: " + originBit + "\nDestination: " + destBit + "\nType: " + type;
+        return "Piece: " + getPiece() + "\nOrigin: " + getOriginBit() + "\nDestination: " + getDestBit() + "\nType: " + getType();
     }
 
     @Override
     public Move clone(){
-        return new Move(this.piece, this.originBit, this.destBit, this.type);
+        return new Move(this.packed);
     }
 }
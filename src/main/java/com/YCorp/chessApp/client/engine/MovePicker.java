@@ -0,0 +1,233 @@
+package com.YCorp.chessApp.client.engine;
+
+import com.YCorp.chessApp.client.engine.Move.MOVE_TYPE;
+
+/**
+ * Staged legal move generator for search, yielding one {@link PackedMove} at a time from {@link next}.
+ *
+ * <p>
+ * Moves come out in the order a search is most likely to cut off on, and each stage is only generated once the<br>
+ * previous one is used up:
+ * <ol>
+ * <li> the hash move, if it is legal in the current position</li>
+ * <li> captures, en passent and promotions from {@link Board#generateNoisyMoves}, most valuable victim first and<br>
+ * least valuable attacker first among equal victims (MVV-LVA), promotions scoring as capturing the promoted piece</li>
+ * <li> the two killer moves and the counter move, if they are quiet and legal in the current position</li>
+ * <li> the remaining quiet moves from {@link Board#generateQuietMoves}, highest history score first when a history<br>
+ * table is provided, otherwise in generation order</li>
+ * </ol>
+ * A node that cuts off on the hash move or a capture never generates its quiet moves. Moves already returned by an<br>
+ * earlier stage are skipped, so every legal move is returned exactly once. In noisy mode (see {@link initNoisy}), used<br>
+ * by quiescence search, only the first two stages are run.
+ * </p>
+ *
+ * <p>
+ * Each stage is sorted lazily, {@link next} selects the best remaining move of the stage, so a cutoff early in a<br>
+ * stage doesn't pay for sorting the rest of it.
+ * </p>
+ *
+ * <p>
+ * The hash, killer and counter moves may come from other positions, so they are checked with {@link Board#isLegalMove} first.<br>
+ * A MovePicker holds its own buffers and is reused between nodes, keep one per search ply. The board must not be<br>
+ * changed between {@link next} calls other than by playing a returned move and taking it back.
+ * </p>
+ */
+public final class MovePicker {
+    public static final int STAGE_HASH = 0;
+    public static final int STAGE_NOISY = 1;
+    public static final int STAGE_KILLERS = 2;
+    public static final int STAGE_QUIET = 3;
+    public static final int STAGE_DONE = 4;
+
+    private final Board board;
+    private final int[] noisyMoves = new int[Board.MAX_MOVES];
+    private final int[] quietMoves = new int[Board.MAX_MOVES];
+    private final int[] noisyScores = new int[Board.MAX_MOVES];
+    private final int[] quietScores = new int[Board.MAX_MOVES];
+    private int noisyCount;
+    private int quietCount;
+    private int index;
+    private int stage;
+    private boolean noisyOnly;
+    private boolean generated;
+
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private int counterMove;
+    private int[] history;
+
+    public MovePicker(Board board){
+        this.board = board;
+    }
+
+    /**
+     * Starts picking every legal move of the player to move, quiet moves in generation order.
+     *
+     * @param hashMove best move stored for the position, ie. by a transposition table, 0 if none.
+     * @param killer1 first killer move of the ply, 0 if none.
+     * @param killer2 second killer move of the ply, 0 if none.
+     */
+    public void init(int hashMove, int killer1, int killer2){
+        init(hashMove, killer1, killer2, 0, null);
+    }
+
+    /**
+     * Starts picking every legal move of the player to move.
+     *
+     * @param hashMove best move stored for the position, ie. by a transposition table, 0 if none.
+     * @param killer1 first killer move of the ply, 0 if none.
+     * @param killer2 second killer move of the ply, 0 if none.
+     * @param counterMove quiet move that last refuted the opponent's previous move, 0 if none.
+     * @param history history scores of the player to move's quiet moves indexed by <code>(origin &lt;&lt; 6) | destination</code>,<br>
+     * read but never written, null to keep generation order.
+     */
+    public void init(int hashMove, int killer1, int killer2, int counterMove, int[] history){
+        this.hashMove = this.board.isLegalMove(hashMove) ? hashMove : 0;
+        // Killers are quiet by definition, a capture is already tried in the noisy stage
+        this.killer1 = ((killer1 != this.hashMove) && PackedMove.isQuiet(killer1)) ? killer1 : 0;
+        this.killer2 = ((killer2 != this.hashMove) && (killer2 != this.killer1) && PackedMove.isQuiet(killer2)) ? killer2 : 0;
+        this.counterMove = ((counterMove != this.hashMove) && (counterMove != this.killer1) && (counterMove != this.killer2) &&
+                            PackedMove.isQuiet(counterMove)) ? counterMove : 0;
+        this.history = history;
+        this.noisyOnly = false;
+        start();
+    }
+
+    /**
+     * Starts picking only the captures, en passent captures and promotions of the player to move.
+     *
+     * @param hashMove best move stored for the position, only used if it is itself noisy, 0 if none.
+     */
+    public void initNoisy(int hashMove){
+        this.hashMove = (!PackedMove.isQuiet(hashMove) && this.board.isLegalMove(hashMove)) ? hashMove : 0;
+        this.killer1 = 0;
+        this.killer2 = 0;
+        this.counterMove = 0;
+        this.history = null;
+        this.noisyOnly = true;
+        start();
+    }
+
+    private void start(){
+        this.stage = STAGE_HASH;
+        this.index = 0;
+        this.noisyCount = 0;
+        this.quietCount = 0;
+        this.generated = false;
+    }
+
+    /**
+     * Returns the next move, generating the next stage when the current one is used up.
+     *
+     * @return the next packed move, always positive, or 0 once every move has been returned.
+     */
+    public int next(){
+        // Each stage either returns a move or moves on to the next stage and loops
+        for (;;){
+            switch (this.stage){
+                case STAGE_HASH:
+                    this.stage = STAGE_NOISY;
+                    if (this.hashMove != 0){
+                        return this.hashMove;
+                    }
+                    continue;
+                case STAGE_NOISY:
+                    if (!this.generated){
+                        this.noisyCount = this.board.generateNoisyMoves(this.board.getTurnInt(), this.noisyMoves);
+                        for (int i = 0; i < this.noisyCount; i++){
+                            this.noisyScores[i] = mvvLva(this.noisyMoves[i]);
+                        }
+                        this.generated = true;
+                        this.index = 0;
+                    }
+                    while (this.index < this.noisyCount){
+                        selectBest(this.noisyMoves, this.noisyScores, this.index, this.noisyCount);
+                        int move = this.noisyMoves[this.index++];
+                        if (move != this.hashMove){
+                            return move;
+                        }
+                    }
+                    if (this.noisyOnly){
+                        this.stage = STAGE_DONE;
+                        return 0;
+                    }
+                    this.stage = STAGE_KILLERS;
+                    this.index = 0;
+                    continue;
+                case STAGE_KILLERS:
+                    while (this.index < 3){
+                        int slot = this.index++;
+                        int killer = (slot == 0) ? this.killer1 : (slot == 1) ? this.killer2 : this.counterMove;
+                        if ((killer != 0) && this.board.isLegalMove(killer)){
+                            return killer;
+                        }
+                    }
+                    this.stage = STAGE_QUIET;
+                    this.quietCount = this.board.generateQuietMoves(this.board.getTurnInt(), this.quietMoves);
+                    if (this.history != null){
+                        for (int i = 0; i < this.quietCount; i++){
+                            int move = this.quietMoves[i];
+                            this.quietScores[i] = this.history[(PackedMove.getOrigin(move) << 6) | PackedMove.getDestination(move)];
+                        }
+                    }
+                    this.index = 0;
+                    continue;
+                case STAGE_QUIET:
+                    while (this.index < this.quietCount){
+                        if (this.history != null){
+                            selectBest(this.quietMoves, this.quietScores, this.index, this.quietCount);
+                        }
+                        int move = this.quietMoves[this.index++];
+                        if ((move != this.hashMove) && (move != this.killer1) && (move != this.killer2) && (move != this.counterMove)){
+                            return move;
+                        }
+                    }
+                    this.stage = STAGE_DONE;
+                    return 0;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /**
+     * Scores a noisy move for ordering, victims by absolute piece value times 8 less the attacker's absolute value.<br>
+     * A promotion adds the promoted piece as if it were captured, so queen promotions come before most captures.
+     */
+    private int mvvLva(int move){
+        int victim = (PackedMove.getType(move) == MOVE_TYPE.EN_PASSENT) ? 1 :
+                     Math.abs(this.board.getPieceAtBitAddress(PackedMove.getDestination(move)));
+        int promotion = Math.abs(PackedMove.getPromotionPiece(move));
+        return ((victim + promotion) * 8) - Math.abs(PackedMove.getPiece(move));
+    }
+
+    // Selection sort step, swaps the best scored move from index on into index
+    private static void selectBest(int[] moves, int[] scores, int index, int count){
+        int best = index;
+        for (int i = index + 1; i < count; i++){
+            if (scores[i] > scores[best]){
+                best = i;
+            }
+        }
+        if (best != index){
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+    }
+
+    /**
+     * Returns the stage the last move returned by {@link next} came from, {@link STAGE_DONE} once every move was returned.
+     */
+    public int getStage(){
+        // next() moves on to the noisy stage as soon as it returns the hash move
+        if ((this.stage == STAGE_NOISY) && !this.generated){
+            return STAGE_HASH;
+        }
+        return this.stage;
+    }
+}
@@ -0,0 +1,161 @@
+package com.YCorp.chessApp.client.engine;
+
+import com.YCorp.chessApp.client.engine.Move.MOVE_TYPE;
+
+/**
+ * Static helpers for moves packed into a single primitive int.
+ *
+ * <p>
+ * Used by the allocation-free move generation overloads in {@link Board} (ie. {@link Board#generateValidMoves(int, int[])}),<br>
+ * which write packed moves into a caller owned int[] buffer instead of allocating an int[]{piece, origin, destination}<br>
+ * per move. Callers are expected to keep one buffer of {@link Board#MAX_MOVES} length per search ply and reuse it.
+ * </p>
+ *
+ * <p>
+ * Bit layout, from the least significant bit:
+ * <ul>
+ * <li> bits 0-5: origin square</li>
+ * <li> bits 6-11: destination square</li>
+ * <li> bits 12-15: piece value + 6 (0 to 12)</li>
+ * <li> bits 16-18: {@link MOVE_TYPE} ordinal</li>
+ * <li> bits 19-21: absolute promotion piece value, 0 for non-promotions</li>
+ * </ul>
+ * Squares are indices in RLERF encoding (see <a href="Board.html#RLERF">RLERF encoding</a> in {@link Board}). The promotion<br>
+ * piece is stored unsigned as it always belongs to the moving player.
+ * </p>
+ */
+public final class PackedMove {
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int DEST_SHIFT = 6;
+    private static final int PIECE_SHIFT = 12;
+    private static final int TYPE_SHIFT = 16;
+    private static final int PROMOTION_SHIFT = 19;
+
+    // MOVE_TYPE.values() clones its backing array on every call
+    private static final MOVE_TYPE[] MOVE_TYPES = MOVE_TYPE.values();
+
+    private PackedMove(){}
+
+    /**
+     * Packs a non-promotion move into a single int.
+     *
+     * @param piece int value of the moving piece, -6 to 6 excluding 0.
+     * @param origin index of the origin square in RLERF encoding.
+     * @param destination index of the destination square in RLERF encoding.
+     * @param type the {@link MOVE_TYPE} of the move.
+     * @return the packed move.
+     */
+    public static int pack(int piece, int origin, int destination, MOVE_TYPE type){
+        return origin | (destination << DEST_SHIFT) | ((piece + 6) << PIECE_SHIFT) | (type.ordinal() << TYPE_SHIFT);
+    }
+
+    /**
+     * Packs a move into a single int, including the promotion piece.
+     *
+     * @param piece int value of the moving piece, -6 to 6 excluding 0.
+     * @param origin index of the origin square in RLERF encoding.
+     * @param destination index of the destination square in RLERF encoding.
+     * @param type the {@link MOVE_TYPE} of the move.
+     * @param promotionPiece int value of the promotion piece, sign is ignored. 0 for non-promotions.
+     * @return the packed move.
+     */
+    public static int pack(int piece, int origin, int destination, MOVE_TYPE type, int promotionPiece){
+        return pack(piece, origin, destination, type) | (Math.abs(promotionPiece) << PROMOTION_SHIFT);
+    }
+
+    /**
+     * Replaces the promotion piece of a packed move.
+     *
+     * @param move the packed move.
+     * @param promotionPiece int value of the new promotion piece, sign is ignored. 0 to clear it.
+     * @return the packed move with the new promotion piece.
+     */
+    public static int withPromotionPiece(int move, int promotionPiece){
+        return (move & ~(0x7 << PROMOTION_SHIFT)) | (Math.abs(promotionPiece) << PROMOTION_SHIFT);
+    }
+
+    public static int getOrigin(int move){
+        return move & SQUARE_MASK;
+    }
+
+    public static int getDestination(int move){
+        return (move >>> DEST_SHIFT) & SQUARE_MASK;
+    }
+
+    public static int getPiece(int move){
+        return ((move >>> PIECE_SHIFT) & 0xF) - 6;
+    }
+
+    public static MOVE_TYPE getType(int move){
+        return MOVE_TYPES[(move >>> TYPE_SHIFT) & 0x7];
+    }
+
+    /**
+     * Returns the signed promotion piece of a packed move.
+     *
+     * @param move the packed move.
+     * @return int value of the promotion piece with the sign of the moving piece, 0 for non-promotions.
+     */
+    public static int getPromotionPiece(int move){
+        int promotion = (move >>> PROMOTION_SHIFT) & 0x7;
+        return (getPiece(move) < 0) ? -promotion : promotion;
+    }
+
+    public static boolean isCapture(int move){
+        MOVE_TYPE type = getType(move);
+        return (type == MOVE_TYPE.ATTACK) || (type == MOVE_TYPE.PROMOTE_ATTACK) || (type == MOVE_TYPE.EN_PASSENT);
+    }
+
+    public static boolean isPromotion(int move){
+        return ((move >>> PROMOTION_SHIFT) & 0x7) != 0;
+    }
+
+    /**
+     * Returns true for moves that neither capture nor promote, ie. the moves {@link Board#generateQuietMoves} generates.
+     */
+    public static boolean isQuiet(int move){
+        return !isCapture(move) && !isPromotion(move);
+    }
+
+    /**
+     * Converts a packed move to the int[]{piece, origin, destination} format used by the {@link java.util.ArrayList}<br>
+     * move generation methods in {@link Board}.
+     *
+     * @param move the packed move.
+     * @return a new int[]{piece, origin, destination}.
+     */
+    public static int[] toArray(int move){
+        return new int[]{getPiece(move), getOrigin(move), getDestination(move)};
+    }
+
+    /**
+     * Formats a packed move in long algebraic (UCI) notation, ie. e2e4 or e7e8q, as printed by {@link Perft} divide.
+     *
+     * @param move the packed move.
+     * @return the origin square, destination square and lowercase promotion piece if any.
+     */
+    public static String toUci(int move){
+        int origin = getOrigin(move);
+        int destination = getDestination(move);
+        StringBuilder sb = new StringBuilder(5);
+        sb.append((char)('a' + (origin % 8))).append((char)('1' + (origin / 8)));
+        sb.append((char)('a' + (destination % 8))).append((char)('1' + (destination / 8)));
+        if (isPromotion(move)){
+            sb.append(" pnbrqk".charAt(Math.abs(getPromotionPiece(move))));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates a {@link Move} object from a packed move, with the promotion piece set for promotions.
+     *
+     * @param move the packed move.
+     * @return a new {@link Move} ready to be played with {@link Board#playMove(Move)}.
+     */
+    public static Move toMove(int move){
+        if (isPromotion(move)){
+            return new Move(getPiece(move), getOrigin(move), getDestination(move), getType(move), getPromotionPiece(move));
+        }
+        return new Move(getPiece(move), getOrigin(move), getDestination(move), getType(move));
+    }
+}
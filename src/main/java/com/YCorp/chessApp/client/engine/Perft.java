@@ -0,0 +1,262 @@
+package com.YCorp.chessApp.client.engine;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test (perft) and divide tool for the move generator in {@link Board}.
+ *
+ * <p>
+ * Perft counts every leaf node of the legal move tree to a fixed depth. The counts for the reference positions in<br>
+ * {@link REFERENCE_POSITIONS} are well known, so any difference points to a move generation or make/unmake bug, and<br>
+ * the nodes/second figure is the throughput benchmark for move generation work. Divide prints the count below each<br>
+ * root move, which narrows a wrong total down to the move that causes it.
+ * </p>
+ *
+ * <p>
+ * Trees are walked with {@link Board#generateValidMoves(int, int[])} and {@link Board#makeMove}/{@link Board#unmakeMove},<br>
+ * using one packed move buffer per ply. The last ply is counted in bulk from the move count without playing the moves.<br>
+ * Root moves are split across a {@link ForkJoinPool}, each task working on its own {@link Board#copy()} of the root,<br>
+ * as a Board is not safe to share between threads.
+ * </p>
+ *
+ * <p>
+ * Usage:<br>
+ * <code>Perft</code> runs every reference position to its default depth.<br>
+ * <code>Perft divide &lt;depth&gt; [fen]</code> prints the divide of the provided position, or the start position.<br>
+ * <code>Perft &lt;depth&gt; [fen]</code> prints the perft count of the provided position, or the start position.
+ * </p>
+ */
+public class Perft {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Reference positions as {name, FEN, perft counts from depth 1 onwards}.
+     *
+     * <p>
+     * Kiwipete covers castling through and out of attacks, position 3 covers en passent discovered checks along the<br>
+     * rank, and positions 4 and 5 cover promotion captures, underpromotion and castling rights lost to rook captures.
+     * </p>
+     */
+    public static final Object[][] REFERENCE_POSITIONS = new Object[][]{
+        {"startpos", START_FEN, new long[]{20L, 400L, 8902L, 197281L, 4865609L, 119060324L}},
+        {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", new long[]{48L, 2039L, 97862L, 4085603L, 193690690L}},
+        {"position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[]{14L, 191L, 2812L, 43238L, 674624L, 11030083L}},
+        {"position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[]{6L, 264L, 9467L, 422333L, 15833292L}},
+        {"position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", new long[]{44L, 1486L, 62379L, 2103487L, 89941194L}},
+        {"position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", new long[]{46L, 2079L, 89890L, 3894594L, 164075551L}}
+    };
+
+    public static void main(String[] args){
+        if (args.length == 0){
+            runReferenceSuite(ForkJoinPool.commonPool());
+        }
+        else if (args[0].equals("divide")){
+            int depth = Integer.parseInt(args[1]);
+            String fen = (args.length > 2) ? joinFen(args, 2) : START_FEN;
+            divide(fen, depth, ForkJoinPool.commonPool());
+        }
+        else {
+            int depth = Integer.parseInt(args[0]);
+            String fen = (args.length > 1) ? joinFen(args, 1) : START_FEN;
+            long start = System.nanoTime();
+            long nodes = perft(fen, depth, ForkJoinPool.commonPool());
+            System.out.println("perft(" + depth + ") = " + nodes + " " + formatSpeed(nodes, System.nanoTime() - start));
+        }
+    }
+
+    //#region Perft
+    /**
+     * Counts the leaf nodes of the legal move tree below the current position of the provided board, on the calling thread.
+     *
+     * <p>
+     * The board is left in the position it was provided in.
+     * </p>
+     * @param board the {@link Board} to count from, the player to move is read from {@link Board#getTurnInt()}.
+     * @param depth number of plies to search, 0 counts the current position as a single node.
+     * @return the number of leaf nodes at the provided depth.
+     */
+    public static long perft(Board board, int depth){
+        if (depth == 0){
+            return 1L;
+        }
+        return perft(board, depth, new int[depth + 1][Board.MAX_MOVES]);
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree below the provided position, splitting the root moves across the<br>
+     * provided pool.
+     *
+     * @param fen FEN string of the root position.
+     * @param depth number of plies to search.
+     * @param pool the {@link ForkJoinPool} that root moves are run on.
+     * @return the number of leaf nodes at the provided depth.
+     */
+    public static long perft(String fen, int depth, ForkJoinPool pool){
+        if (depth == 0){
+            return 1L;
+        }
+        Board root = new Board(fen);
+        int[] rootMoves = new int[Board.MAX_MOVES];
+        int count = root.generateValidMoves(root.getTurnInt(), rootMoves);
+        long total = 0L;
+        for (long nodes : splitRoot(root, rootMoves, count, depth, pool)){
+            total += nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Prints the leaf node count below each root move of the provided position (in long algebraic notation, ie. e2e4),<br>
+     * followed by the total and the nodes/second.
+     *
+     * @param fen FEN string of the root position.
+     * @param depth number of plies to search, including the root move.
+     * @param pool the {@link ForkJoinPool} that root moves are run on.
+     * @return the total number of leaf nodes.
+     */
+    public static long divide(String fen, int depth, ForkJoinPool pool){
+        if (depth == 0){
+            // No root moves to list, the root itself is the only leaf
+            System.out.println("Nodes: 1");
+            return 1L;
+        }
+        int[] rootMoves = new int[Board.MAX_MOVES];
+        Board root = new Board(fen);
+        int count = root.generateValidMoves(root.getTurnInt(), rootMoves);
+
+        long start = System.nanoTime();
+        long[] results = splitRoot(root, rootMoves, count, depth, pool);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0L;
+        for (int i = 0; i < count; i++){
+            System.out.println(PackedMove.toUci(rootMoves[i]) + ": " + results[i]);
+            total += results[i];
+        }
+        System.out.println();
+        System.out.println("Moves: " + count);
+        System.out.println("Nodes: " + total + " " + formatSpeed(total, elapsed));
+        return total;
+    }
+
+    /**
+     * Runs every position in {@link REFERENCE_POSITIONS} up to the deepest count that completes in a reasonable time,<br>
+     * printing each count against its expected value and the nodes/second.
+     *
+     * @param pool the {@link ForkJoinPool} that root moves are run on.
+     * @return true if every count matched.
+     */
+    public static boolean runReferenceSuite(ForkJoinPool pool){
+        boolean allPassed = true;
+        long totalNodes = 0L;
+        long totalTime = 0L;
+        System.out.println("Perft reference suite on " + pool.getParallelism() + " threads");
+        for (Object[] position : REFERENCE_POSITIONS){
+            String name = (String) position[0];
+            String fen = (String) position[1];
+            long[] expected = (long[]) position[2];
+            // Leave out the deepest count, which takes minutes on its own
+            for (int depth = 1; depth < expected.length; depth++){
+                long start = System.nanoTime();
+                long nodes = perft(fen, depth, pool);
+                long elapsed = System.nanoTime() - start;
+                boolean passed = nodes == expected[depth - 1];
+                allPassed &= passed;
+                totalNodes += nodes;
+                totalTime += elapsed;
+                System.out.println(String.format("  %-10s depth %d: %12d %s %s", name, depth, nodes,
+                    passed ? "OK  " : "FAIL (expected " + expected[depth - 1] + ")", formatSpeed(nodes, elapsed)));
+            }
+        }
+        System.out.println((allPassed ? "All passed, " : "FAILED, ") + totalNodes + " nodes " + formatSpeed(totalNodes, totalTime));
+        return allPassed;
+    }
+
+    // Per-ply buffers are indexed by remaining depth
+    private static long perft(Board board, int depth, int[][] moveBuffers){
+        int[] moves = moveBuffers[depth];
+        int count = board.generateValidMoves(board.getTurnInt(), moves);
+        // Bulk count, the last ply doesn't need to be played
+        if (depth == 1){
+            return count;
+        }
+
+        long nodes = 0L;
+        for (int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1, moveBuffers);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+    //#endregion
+
+    //#region Root splitting
+    // Returns the leaf count below each of the first count rootMoves of the root board, in the same order
+    private static long[] splitRoot(Board root, int[] rootMoves, int count, int depth, ForkJoinPool pool){
+        long[] results = new long[count];
+        if (depth <= 1){
+            for (int i = 0; i < count; i++){
+                results[i] = 1L;
+            }
+            return results;
+        }
+
+        ArrayList<RootMoveTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            // Copied here, the root board is only ever read on this thread
+            RootMoveTask task = new RootMoveTask(root.copy(), rootMoves[i], depth - 1);
+            pool.execute(task);
+            tasks.add(task);
+        }
+        for (int i = 0; i < count; i++){
+            results[i] = tasks.get(i).join();
+        }
+        return results;
+    }
+
+    /**
+     * Counts the subtree below a single root move on a {@link Board} owned by the task.
+     */
+    private static class RootMoveTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int rootMove;
+        private final int depth;
+
+        RootMoveTask(Board board, int rootMove, int depth){
+            this.board = board;
+            this.rootMove = rootMove;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute(){
+            this.board.makeMove(this.rootMove);
+            return perft(this.board, this.depth);
+        }
+    }
+    //#endregion
+
+    //#region Formatting
+    private static String formatSpeed(long nodes, long nanos){
+        double seconds = nanos / 1e9;
+        return String.format("(%.3f s, %.2f Mnps)", seconds, (seconds > 0) ? (nodes / seconds) / 1e6 : 0.0);
+    }
+
+    // FEN fields arrive as separate arguments when not quoted on the command line
+    private static String joinFen(String[] args, int from){
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < args.length; i++){
+            if (i > from){
+                sb.append(' ');
+            }
+            sb.append(args[i]);
+        }
+        return sb.toString();
+    }
+    //#endregion
+}
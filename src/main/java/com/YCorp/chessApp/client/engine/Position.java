@@ -0,0 +1,175 @@
+package com.YCorp.chessApp.client.engine;
+
+/**
+ * Immutable snapshot of a chess position, small enough to be stored by the million and safe to share between threads.
+ *
+ * <p>
+ * Holds only what is needed to rebuild a {@link Board} at the same position: 6 piece type and 2 colour bitboards, side<br>
+ * to move, castling rights, en passent square, half clock and zobrist hash, 96 bytes including the object header.<br>
+ * None of the Board histories are kept, so a rebuilt Board cannot undo past the snapshot and starts a new repetition<br>
+ * count. Exported with {@link Board#toPosition()} and rebuilt with {@link Board#Board(Position)}.
+ * </p>
+ *
+ * <p>
+ * Positions are equal when every field is equal, and {@link hashCode} is taken from the zobrist hash, so they can be<br>
+ * used directly as {@link java.util.HashMap} keys, ie. for analysis caches and position indexes.
+ * </p>
+ */
+public final class Position {
+    /**
+     * Piece type bitboards of both colours in RLERF encoding (see <a href="Board.html#RLERF">RLERF encoding</a> in<br>
+     * {@link Board}). A piece of one colour is its type bitboard AND'ed with that colour's bitboard.<br>
+     * Held inline rather than in an array, which saves the array header and the indirection on every lookup.
+     */
+    private final long pawns;
+    private final long knights;
+    private final long bishops;
+    private final long rooks;
+    private final long queens;
+    private final long kings;
+    private final long white;
+    private final long black;
+    /**
+     * Packed side to move, castling rights and en passent square, from the least significant bit:
+     * <ul>
+     * <li> bit 0: 1 if white is to move</li>
+     * <li> bits 1-4: castling rights, white long, white short, black long, black short from the most significant bit</li>
+     * <li> bits 5-11: destination square of the last move if it was a two square pawn push, plus one, 0 otherwise</li>
+     * </ul>
+     */
+    private final int flags;
+    private final int halfClock;
+    private final long zobristHash;
+
+    private static final int CASTLING_SHIFT = 1;
+    private static final int DOUBLE_PUSH_SHIFT = 5;
+
+    /**
+     * Creates a snapshot from its parts, only called by {@link Board#toPosition()}.
+     *
+     * @param pieceBitboards Board piece bitboards indexed by piece value + 6, copied.
+     * @param white occupancy of the white pieces.
+     * @param black occupancy of the black pieces.
+     * @param whitesTurn true if white is to move.
+     * @param castlingBits castling rights packed as white long, white short, black long, black short from bit 3 to 0.
+     * @param doublePushSquare destination square of a two square pawn push on the last move, -1 if none.
+     * @param halfClock plies since the last capture or pawn move.
+     * @param zobristHash zobrist hash of the position.
+     */
+    Position(long[] pieceBitboards, long white, long black, boolean whitesTurn, int castlingBits, int doublePushSquare, int halfClock,
+             long zobristHash){
+        this.pawns = pieceBitboards[6 + 1] | pieceBitboards[6 - 1];
+        this.knights = pieceBitboards[6 + 2] | pieceBitboards[6 - 2];
+        this.bishops = pieceBitboards[6 + 3] | pieceBitboards[6 - 3];
+        this.rooks = pieceBitboards[6 + 4] | pieceBitboards[6 - 4];
+        this.queens = pieceBitboards[6 + 5] | pieceBitboards[6 - 5];
+        this.kings = pieceBitboards[6 + 6] | pieceBitboards[6 - 6];
+        this.white = white;
+        this.black = black;
+        this.flags = (whitesTurn ? 1 : 0) | (castlingBits << CASTLING_SHIFT) | ((doublePushSquare + 1) << DOUBLE_PUSH_SHIFT);
+        this.halfClock = halfClock;
+        this.zobristHash = zobristHash;
+    }
+
+    // Returns the bitboard of the provided piece type of both colours, 0 for the empty piece
+    private long typeBitboard(int type){
+        switch (type){
+            case 1:
+                return this.pawns;
+            case 2:
+                return this.knights;
+            case 3:
+                return this.bishops;
+            case 4:
+                return this.rooks;
+            case 5:
+                return this.queens;
+            case 6:
+                return this.kings;
+            default:
+                return 0L;
+        }
+    }
+
+    //#region Getters
+    /**
+     * Returns the squares holding the provided piece.
+     *
+     * @param piece int value of the piece, -6 to 6. Passing 0 returns an empty mask.
+     * @return long RLERF mask of every square holding the piece.
+     */
+    public long getPieceBitboard(int piece){
+        return typeBitboard(Math.abs(piece)) & ((piece > 0) ? this.white : this.black);
+    }
+
+    /**
+     * Returns the piece on the provided square.
+     *
+     * @param square index of the square in RLERF encoding.
+     * @return int value of the piece, 0 if the square is empty.
+     */
+    public int getPieceAt(int square){
+        long mask = 1L << (63 - square);
+        int sign = ((this.white & mask) != 0) ? 1 : ((this.black & mask) != 0) ? -1 : 0;
+        if (sign == 0){
+            return 0;
+        }
+        for (int type = 1; type <= 6; type++){
+            if ((typeBitboard(type) & mask) != 0){
+                return sign * type;
+            }
+        }
+        return 0;
+    }
+
+    public boolean isWhitesTurn(){
+        return (this.flags & 1) != 0;
+    }
+
+    public int getTurnInt(){
+        return isWhitesTurn() ? 1 : -1;
+    }
+
+    /**
+     * Returns the castling rights packed as 4 bits: white long, white short, black long, black short from bit 3 to 0.
+     */
+    public int getCastlingBits(){
+        return (this.flags >>> CASTLING_SHIFT) & 0xF;
+    }
+
+    /**
+     * Returns the destination square of the last move if it was a two square pawn push, -1 otherwise.
+     */
+    public int getDoublePushSquare(){
+        return ((this.flags >>> DOUBLE_PUSH_SHIFT) & 0x7F) - 1;
+    }
+
+    public int getHalfClock(){
+        return this.halfClock;
+    }
+
+    public long getZobrist(){
+        return this.zobristHash;
+    }
+    //#endregion
+
+    @Override
+    public boolean equals(Object other){
+        if (this == other){
+            return true;
+        }
+        if (!(other instanceof Position)){
+            return false;
+        }
+        Position position = (Position) other;
+        return (this.zobristHash == position.zobristHash) && (this.flags == position.flags) &&
+               (this.halfClock == position.halfClock) && (this.white == position.white) && (this.black == position.black) &&
+               (this.pawns == position.pawns) && (this.knights == position.knights) && (this.bishops == position.bishops) &&
+               (this.rooks == position.rooks) && (this.queens == position.queens) && (this.kings == position.kings);
+    }
+
+    @Override
+    public int hashCode(){
+        return Long.hashCode(this.zobristHash);
+    }
+}
@@ -0,0 +1,163 @@
+package com.YCorp.chessApp.client.engine;
+
+/**
+ * Zobrist hashing keys shared by every {@link Board}.
+ *
+ * <p>
+ * The keys are generated once per JVM from a fixed seed, so the same position hashes to the same value on every<br>
+ * Board, in every game and on every run. Hashes can therefore be used as keys across games, ie. for transposition<br>
+ * tables, position indexes in the database and opening books.
+ * </p>
+ *
+ * <p>
+ * Keys are stored in a single flat long[781] using the Polyglot opening book layout:
+ * <ul>
+ * <li> 0-767: piece/square keys at <code>64 * kind + square</code>, where kind is 0 to 11 in the order black pawn,<br>
+ * white pawn, black knight, white knight ... black king, white king</li>
+ * <li> 768-771: castling rights, white short, white long, black short, black long</li>
+ * <li> 772-779: en passent file, a to h</li>
+ * <li> 780: white to move</li>
+ * </ul>
+ * Polyglot squares are <code>8 * rank + file</code> from a1, which is the same index as the RLERF encoding<br>
+ * (see <a href="Board.html#RLERF">RLERF encoding</a> in {@link Board}). Board only hashes the en passent file when<br>
+ * the player to move can actually capture en passent and hashes the turn key when white is to move, as Polyglot<br>
+ * does. Only the layout is Polyglot compatible, the keys themselves are generated from {@link KEY_SEED} and not the<br>
+ * Polyglot Random64 array, so hashes don't match Polyglot book hashes.
+ * </p>
+ *
+ * <p>
+ * Material keys are drawn from the same generator after the 781 position keys. A material key is the XOR of<br>
+ * {@link material}(piece, n) for n = 1 to the count of each piece, so it identifies the material on the board<br>
+ * (ie. KRP vs KR) regardless of where the pieces stand, and is updated with a single XOR when a piece is captured<br>
+ * or promoted.
+ * </p>
+ */
+public final class Zobrist {
+    public static final int PIECE_OFFSET = 0;
+    public static final int CASTLING_OFFSET = 768;
+    public static final int EN_PASSENT_OFFSET = 772;
+    public static final int TURN_OFFSET = 780;
+    public static final int KEY_COUNT = 781;
+
+    // Fixed seed so keys, and therefore every hash, are reproducible between runs
+    private static final long KEY_SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * All 781 keys in Polyglot layout.
+     */
+    private static final long[] KEYS = new long[KEY_COUNT];
+
+    /**
+     * Piece/square keys re-indexed by <code>((piece + 6) &lt;&lt; 6) | square</code> so a lookup needs no branch<br>
+     * on the piece colour. The 64 entries for the empty piece value (0) are left as 0.
+     */
+    private static final long[] PIECE_SQUARE = new long[13 * 64];
+
+    /**
+     * Material keys indexed by <code>((piece + 6) &lt;&lt; 6) | n</code>, for the nth piece of a kind. Index 0 is unused.
+     */
+    private static final long[] MATERIAL = new long[13 * 64];
+
+    public static final long WHITE_SHORT;
+    public static final long WHITE_LONG;
+    public static final long BLACK_SHORT;
+    public static final long BLACK_LONG;
+    public static final long WHITE_TURN;
+
+    static {
+        long[] seed = new long[]{KEY_SEED};
+        for (int i = 0; i < KEY_COUNT; i++){
+            KEYS[i] = nextRandom(seed);
+        }
+        // Drawn after the position keys so those stay the same
+        for (int i = 0; i < MATERIAL.length; i++){
+            MATERIAL[i] = ((i >>> 6) == 6) ? 0L : nextRandom(seed);
+        }
+
+        for (int piece = -6; piece <= 6; piece++){
+            if (piece == 0){
+                continue;
+            }
+            int kind = (2 * (Math.abs(piece) - 1)) + ((piece > 0) ? 1 : 0);
+            System.arraycopy(KEYS, PIECE_OFFSET + (64 * kind), PIECE_SQUARE, (piece + 6) << 6, 64);
+        }
+
+        WHITE_SHORT = KEYS[CASTLING_OFFSET];
+        WHITE_LONG = KEYS[CASTLING_OFFSET + 1];
+        BLACK_SHORT = KEYS[CASTLING_OFFSET + 2];
+        BLACK_LONG = KEYS[CASTLING_OFFSET + 3];
+        WHITE_TURN = KEYS[TURN_OFFSET];
+    }
+
+    private Zobrist(){}
+
+    //#region Lookups
+    /**
+     * Returns the key for a piece standing on a square.
+     *
+     * @param piece int value of the piece, -6 to 6 excluding 0.
+     * @param square index of the square in RLERF encoding.
+     * @return the piece/square key.
+     */
+    public static long pieceSquare(int piece, int square){
+        return PIECE_SQUARE[((piece + 6) << 6) | square];
+    }
+
+    /**
+     * Returns the key for an en passent capture being available on a file.
+     *
+     * @param file file index, 0 (a) to 7 (h).
+     * @return the en passent file key.
+     */
+    public static long enPassent(int file){
+        return KEYS[EN_PASSENT_OFFSET + file];
+    }
+
+    /**
+     * Returns the key XOR'ed into a material key for the nth piece of a kind.
+     *
+     * @param piece int value of the piece, -6 to 6 excluding 0.
+     * @param n 1 for the first piece of the kind, 2 for the second and so on, up to 63.
+     * @return the material key of the nth piece.
+     */
+    public static long material(int piece, int n){
+        return MATERIAL[((piece + 6) << 6) | n];
+    }
+
+    /**
+     * Builds the material key of a set of piece counts, ie. for looking up positions in the database by material<br>
+     * signature. Equal to {@link Board#getMaterialKey()} of any position with the same counts.
+     *
+     * @param pieceCounts int[13] of the number of each piece, indexed by piece value + 6.
+     * @return the material key.
+     */
+    public static long materialKey(int[] pieceCounts){
+        long key = 0L;
+        for (int piece = -6; piece <= 6; piece++){
+            for (int n = 1; n <= pieceCounts[piece + 6]; n++){
+                key ^= material(piece, n);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns a copy of all keys in Polyglot layout, ie. for writing them alongside a stored opening book or position index.
+     *
+     * @return a new long[781].
+     */
+    public static long[] getKeys(){
+        return KEYS.clone();
+    }
+    //#endregion
+
+    // xorshift64* generator, same as MagicBitboard, state is held in a single element array
+    private static long nextRandom(long[] seed){
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -0,0 +1,709 @@
+package com.YCorp.chessApp.client.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.YCorp.chessApp.client.engine.search.Search;
+import com.YCorp.chessApp.client.engine.search.SearchInfo;
+import com.YCorp.chessApp.client.engine.search.SearchLimits;
+import com.YCorp.chessApp.client.engine.search.TranspositionTable;
+import com.YCorp.chessApp.client.exceptions.AlgebraicParseException;
+import com.YCorp.chessApp.client.parser.RegexParser;
+
+/**
+ * Ad-hoc benchmarks for the move generation engine, printed to System.out.
+ *
+ * <p>
+ * Not a rigorous harness (no forking or statistical warmup), each benchmark runs a warmup pass so the JIT has<br>
+ * compiled the measured paths before timing, and accumulates results into a sink so the work can't be eliminated.
+ * </p>
+ */
+public class engineBenchmarks {
+    public static void main(String[] args){
+        slidingAttackBenchmark(2_000_000);
+        moveGenerationBenchmark(1_000_000);
+        makeUnmakeBenchmark(200_000);
+        sanReplayBenchmark(20_000);
+        gameReplayBenchmark(20_000);
+        boardCopyBenchmark(200_000);
+        gameEndDetectionBenchmark(200_000);
+        stagedGenerationBenchmark(100_000);
+        searchBenchmark(5);
+        parallelSearchBenchmark(6, new int[]{1, 2, 4, 8, 16, 32});
+    }
+
+    /**
+     * Compares per-call cost of the hyperbolic quintessence sliding ray generation ({@link Board#hypQuint})<br>
+     * against the {@link MagicBitboard} table lookups that replaced it.
+     *
+     * <p>
+     * Random occupancies are generated with a fixed seed. Before timing, both paths are checked to produce<br>
+     * identical rook and bishop masks for every sampled square/occupancy pair.
+     * </p>
+     * @param iterations number of rook + bishop mask generations per timed pass.
+     */
+    public static void slidingAttackBenchmark(int iterations){
+        Random random = new Random(64);
+        int samples = 4096;
+        int[] squares = new int[samples];
+        long[] occupancies = new long[samples];
+
+        for (int i = 0; i < samples; i++){
+            squares[i] = random.nextInt(64);
+            // Sparse-ish occupancy similar to a middlegame, always containing the piece itself
+            occupancies[i] = (random.nextLong() & random.nextLong()) | (1L << (63 - squares[i]));
+        }
+
+        // Correctness check
+        for (int i = 0; i < samples; i++){
+            if (hypQuintRook(squares[i], occupancies[i]) != MagicBitboard.rookAttacks(squares[i], occupancies[i]) ||
+                hypQuintBishop(squares[i], occupancies[i]) != MagicBitboard.bishopAttacks(squares[i], occupancies[i])){
+                System.out.println("slidingAttackBenchmark(): Mismatch for square " + squares[i] + " occupancy " + Board.longToString(occupancies[i]));
+                return;
+            }
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int pass = 0; pass < 3; pass++){
+            for (int i = 0; i < iterations; i++){
+                int j = i & (samples - 1);
+                sink ^= hypQuintRook(squares[j], occupancies[j]) ^ hypQuintBishop(squares[j], occupancies[j]);
+                sink ^= MagicBitboard.rookAttacks(squares[j], occupancies[j]) ^ MagicBitboard.bishopAttacks(squares[j], occupancies[j]);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            int j = i & (samples - 1);
+            sink ^= hypQuintRook(squares[j], occupancies[j]) ^ hypQuintBishop(squares[j], occupancies[j]);
+        }
+        long hypQuintTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            int j = i & (samples - 1);
+            sink ^= MagicBitboard.rookAttacks(squares[j], occupancies[j]) ^ MagicBitboard.bishopAttacks(squares[j], occupancies[j]);
+        }
+        long magicTime = System.nanoTime() - start;
+
+        // Each iteration generates a rook and a bishop mask, report per mask
+        double hypQuintPerCall = (double)hypQuintTime / (iterations * 2);
+        double magicPerCall = (double)magicTime / (iterations * 2);
+
+        System.out.println("slidingAttackBenchmark(): " + iterations + " rook + bishop masks");
+        System.out.println(String.format("  hypQuint: %.2f ns/call", hypQuintPerCall));
+        System.out.println(String.format("  magic:    %.2f ns/call", magicPerCall));
+        System.out.println(String.format("  speedup:  %.2fx", hypQuintPerCall / magicPerCall));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares the ArrayList&lt;int[]> {@link Board#generateValidMoves(int)} against the allocation-free<br>
+     * {@link Board#generateValidMoves(int, int[])} writing {@link PackedMove} ints into a reused buffer.
+     *
+     * <p>
+     * Both are run on the starting position for both players. Before timing, the packed moves are checked to<br>
+     * contain the same {piece, origin, destination} triples as the ArrayList.
+     * </p>
+     * @param iterations number of move generations per timed pass.
+     */
+    public static void moveGenerationBenchmark(int iterations){
+        Board board = new Board();
+        int[] buffer = new int[Board.MAX_MOVES];
+
+        // Correctness check, startpos has no promotions so both lists hold the same moves in the same order
+        for (int sign = 1; sign >= -1; sign -= 2){
+            ArrayList<int[]> listMoves = board.generateValidMoves(sign);
+            int count = board.generateValidMoves(sign, buffer);
+            if (count != listMoves.size()){
+                System.out.println("moveGenerationBenchmark(): Move count mismatch for player " + sign);
+                return;
+            }
+            for (int i = 0; i < count; i++){
+                if (!Arrays.equals(listMoves.get(i), PackedMove.toArray(buffer[i]))){
+                    System.out.println("moveGenerationBenchmark(): Move mismatch at index " + i + " for player " + sign);
+                    return;
+                }
+            }
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int pass = 0; pass < 3; pass++){
+            for (int i = 0; i < iterations; i++){
+                int sign = ((i & 1) == 0) ? 1 : -1;
+                sink += board.generateValidMoves(sign).size();
+                sink += board.generateValidMoves(sign, buffer);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += board.generateValidMoves(((i & 1) == 0) ? 1 : -1).size();
+        }
+        long listTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += board.generateValidMoves(((i & 1) == 0) ? 1 : -1, buffer);
+        }
+        long packedTime = System.nanoTime() - start;
+
+        double listPerCall = (double)listTime / iterations;
+        double packedPerCall = (double)packedTime / iterations;
+
+        System.out.println("moveGenerationBenchmark(): " + iterations + " startpos move generations");
+        System.out.println(String.format("  ArrayList<int[]>: %.2f ns/call", listPerCall));
+        System.out.println(String.format("  packed int[]:     %.2f ns/call", packedPerCall));
+        System.out.println(String.format("  speedup:          %.2fx", listPerCall / packedPerCall));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares {@link Board#playMove} + {@link Board#updateState} + {@link Board#undoLastMove} against<br>
+     * {@link Board#makeMove} + {@link Board#unmakeMove} for every legal move of the starting position.
+     *
+     * <p>
+     * The play path prints nothing on the starting position, but its updateState also regenerates the opponent's<br>
+     * moves and records algebraic notation, which is part of what make/unmake avoids.
+     * </p>
+     * @param iterations number of passes over the starting position's moves per timed pass.
+     */
+    public static void makeUnmakeBenchmark(int iterations){
+        Board board = new Board();
+        int[] buffer = new int[Board.MAX_MOVES];
+        int count = board.generateValidMoves(1, buffer);
+        ArrayList<int[]> validMoves = board.generateValidMoves(1);
+        Move[] playMoves = new Move[count];
+        for (int i = 0; i < count; i++){
+            playMoves[i] = PackedMove.toMove(buffer[i]);
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int pass = 0; pass < 3; pass++){
+            for (int i = 0; i < iterations / 10; i++){
+                for (int j = 0; j < count; j++){
+                    board.playMove(playMoves[j]);
+                    board.updateState(1, validMoves);
+                    sink += board.getZobrist();
+                    board.undoLastMove();
+                    board.makeMove(buffer[j]);
+                    sink += board.getZobrist();
+                    board.unmakeMove();
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations / 10; i++){
+            for (int j = 0; j < count; j++){
+                board.playMove(playMoves[j]);
+                board.updateState(1, validMoves);
+                sink += board.getZobrist();
+                board.undoLastMove();
+            }
+        }
+        long playTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (int j = 0; j < count; j++){
+                board.makeMove(buffer[j]);
+                sink += board.getZobrist();
+                board.unmakeMove();
+            }
+        }
+        long makeTime = System.nanoTime() - start;
+
+        // The play path runs a tenth of the iterations, it is far slower
+        double playPerCall = (double)playTime / ((iterations / 10) * count);
+        double makePerCall = (double)makeTime / ((long)iterations * count);
+
+        System.out.println("makeUnmakeBenchmark(): " + count + " startpos moves");
+        System.out.println(String.format("  play/update/undo: %.2f ns/move", playPerCall));
+        System.out.println(String.format("  make/unmake:      %.2f ns/move", makePerCall));
+        System.out.println(String.format("  speedup:          %.2fx", playPerCall / makePerCall));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares replaying a game through {@link RegexParser#validateMove(ArrayList, Board)} against {@link Board#applySan}.
+     *
+     * <p>
+     * Uses the Opera game (Morphy, 1858) without its final mating move, so neither path prints anything. Both boards are<br>
+     * checked to end with the same algebraic history before timing.
+     * </p>
+     * @param iterations number of replays of the game per timed pass.
+     */
+    public static void sanReplayBenchmark(int iterations){
+        ArrayList<String> game = new ArrayList<>(Arrays.asList(
+            "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6",
+            "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+            "Qb8+", "Nxb8"));
+
+        Board regexBoard = new Board();
+        Board sanBoard = new Board();
+        try {
+            RegexParser.validateMove(game, regexBoard);
+        }
+        catch (AlgebraicParseException e){
+            System.out.println("sanReplayBenchmark(): " + e.getMessage());
+            return;
+        }
+        for (String san : game){
+            sanBoard.applySan(san);
+        }
+        if (!regexBoard.getAlgebraicHistory().equals(sanBoard.getAlgebraicHistory())){
+            System.out.println("sanReplayBenchmark(): MISMATCH between validateMove and applySan");
+            return;
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int i = 0; i < iterations / 4; i++){
+            sink += replayRegex(game) + replaySan(game);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += replayRegex(game);
+        }
+        long regexTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += replaySan(game);
+        }
+        long sanTime = System.nanoTime() - start;
+
+        double plies = (double)iterations * game.size();
+        System.out.println("sanReplayBenchmark(): " + game.size() + " plies");
+        System.out.println(String.format("  validateMove: %.2f ns/ply", regexTime / plies));
+        System.out.println(String.format("  applySan:     %.2f ns/ply", sanTime / plies));
+        System.out.println(String.format("  speedup:      %.2fx", (double)regexTime / sanTime));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares games/second of bulk game validation through {@link RegexParser#validateMove(ArrayList, Board)} and<br>
+     * {@link Board#applySan}, each on a new Board per game, against a single reused {@link GameReplayer}.
+     *
+     * <p>
+     * Uses the same game as {@link sanReplayBenchmark}. The replayer is checked to end on the same position and hash<br>
+     * as applySan before timing.
+     * </p>
+     * @param iterations number of replays of the game per timed pass.
+     */
+    public static void gameReplayBenchmark(int iterations){
+        ArrayList<String> game = new ArrayList<>(Arrays.asList(
+            "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6",
+            "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+            "Qb8+", "Nxb8"));
+
+        Board sanBoard = new Board();
+        for (String san : game){
+            sanBoard.applySan(san);
+        }
+        GameReplayer replayer = new GameReplayer();
+        if ((replayer.replay(game) != Board.SAN_OK) || (replayer.getZobrist() != sanBoard.getZobrist()) ||
+            !Arrays.deepEquals(replayer.getBoard(), sanBoard.getBoard()) || (replayer.evaluateState() != sanBoard.getState())){
+            System.out.println("gameReplayBenchmark(): MISMATCH between applySan and GameReplayer");
+            return;
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int i = 0; i < iterations / 4; i++){
+            sink += replayRegex(game) + replaySan(game);
+            replayer.replay(game);
+            sink += replayer.getZobrist();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += replayRegex(game);
+        }
+        long regexTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += replaySan(game);
+        }
+        long sanTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            replayer.replay(game);
+            sink += replayer.getZobrist();
+        }
+        long replayerTime = System.nanoTime() - start;
+
+        System.out.println("gameReplayBenchmark(): " + iterations + " games of " + game.size() + " plies");
+        System.out.println(String.format("  validateMove: %.0f games/s", iterations / (regexTime / 1e9)));
+        System.out.println(String.format("  applySan:     %.0f games/s", iterations / (sanTime / 1e9)));
+        System.out.println(String.format("  GameReplayer: %.0f games/s", iterations / (replayerTime / 1e9)));
+        System.out.println(String.format("  speedup:      %.2fx over validateMove", (double)regexTime / replayerTime));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares forking a position with {@link Board#copy()} against rebuilding it by replaying its moves with<br>
+     * {@link Board#applySan}, which was the only way to branch a Board before.
+     *
+     * <p>
+     * The forked position is the end of the game used by {@link sanReplayBenchmark}. Each copy plays and takes back a<br>
+     * move, so it is checked to be usable and independent of the source.
+     * </p>
+     * @param iterations number of forks per timed pass.
+     */
+    public static void boardCopyBenchmark(int iterations){
+        ArrayList<String> game = new ArrayList<>(Arrays.asList(
+            "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6",
+            "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+            "Qb8+", "Nxb8"));
+        Board source = new Board();
+        for (String san : game){
+            source.applySan(san);
+        }
+        int[] buffer = new int[Board.MAX_MOVES];
+        source.generateValidMoves(source.getTurnInt(), buffer);
+        int move = buffer[0];
+
+        Board fork = source.copy();
+        fork.makeMove(move);
+        if ((fork.getZobrist() == source.getZobrist()) || !Arrays.deepEquals(source.copy().getBoard(), source.getBoard())){
+            System.out.println("boardCopyBenchmark(): copy is not independent of its source");
+            return;
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int i = 0; i < iterations / 4; i++){
+            sink += forkByCopy(source, move) + replaySan(game);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            sink += forkByCopy(source, move);
+        }
+        long copyTime = System.nanoTime() - start;
+
+        // Replaying is far slower, run a tenth of the iterations
+        start = System.nanoTime();
+        for (int i = 0; i < iterations / 10; i++){
+            sink += replaySan(game);
+        }
+        long replayTime = System.nanoTime() - start;
+
+        double copyPerFork = (double)copyTime / iterations;
+        double replayPerFork = (double)replayTime / (iterations / 10);
+
+        System.out.println("boardCopyBenchmark(): fork after " + game.size() + " plies");
+        System.out.println(String.format("  replay: %.2f ns/fork", replayPerFork));
+        System.out.println(String.format("  copy:   %.2f ns/fork (%.0f forks/s)", copyPerFork, 1e9 / copyPerFork));
+        System.out.println(String.format("  speedup: %.2fx", replayPerFork / copyPerFork));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares deciding checkmate/stalemate with {@link Board#hasAnyLegalMove} against generating the full legal move<br>
+     * list with {@link Board#generateValidMoves(int, int[])} and testing it for zero moves.
+     *
+     * <p>
+     * Runs over every position of the game used by {@link sanReplayBenchmark}, plus a checkmate and a stalemate, which are<br>
+     * the positions hasAnyLegalMove cannot exit early on. Before timing, both are checked to agree on every position.
+     * </p>
+     * @param iterations number of passes over the positions per timed pass.
+     */
+    public static void gameEndDetectionBenchmark(int iterations){
+        ArrayList<String> game = new ArrayList<>(Arrays.asList(
+            "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6",
+            "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+            "Qb8+", "Nxb8", "Rd8#"));
+        ArrayList<Board> positions = new ArrayList<>();
+        Board board = new Board();
+        for (String san : game){
+            board.applySan(san);
+            positions.add(board.copy());
+        }
+        positions.add(new Board("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"));
+        int[] buffer = new int[Board.MAX_MOVES];
+
+        // Correctness check
+        for (int i = 0; i < positions.size(); i++){
+            Board position = positions.get(i);
+            int sign = position.getTurnInt();
+            if (position.hasAnyLegalMove(sign) != (position.generateValidMoves(sign, buffer) > 0)){
+                System.out.println("gameEndDetectionBenchmark(): Mismatch on position " + i);
+                return;
+            }
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int i = 0; i < iterations / 4; i++){
+            for (Board position : positions){
+                sink += position.generateValidMoves(position.getTurnInt(), buffer);
+                sink += position.hasAnyLegalMove(position.getTurnInt()) ? 1 : 0;
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (Board position : positions){
+                sink += (position.generateValidMoves(position.getTurnInt(), buffer) > 0) ? 1 : 0;
+            }
+        }
+        long generateTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (Board position : positions){
+                sink += position.hasAnyLegalMove(position.getTurnInt()) ? 1 : 0;
+            }
+        }
+        long hasMoveTime = System.nanoTime() - start;
+
+        double generatePerCall = (double)generateTime / ((long)iterations * positions.size());
+        double hasMovePerCall = (double)hasMoveTime / ((long)iterations * positions.size());
+
+        System.out.println("gameEndDetectionBenchmark(): " + positions.size() + " positions");
+        System.out.println(String.format("  full generation: %.2f ns/position", generatePerCall));
+        System.out.println(String.format("  hasAnyLegalMove: %.2f ns/position", hasMovePerCall));
+        System.out.println(String.format("  speedup:         %.2fx", generatePerCall / hasMovePerCall));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Compares generating every legal move with {@link Board#generateValidMoves(int, int[])} against a {@link MovePicker}<br>
+     * that stops after its first move, as at a search node that cuts off on the hash move or on the first capture, and<br>
+     * against a MovePicker that is run to the end.
+     *
+     * <p>
+     * Runs over every position of the game used by {@link sanReplayBenchmark}. Before timing, the full MovePicker run<br>
+     * is checked to return as many moves as the full generation on every position.
+     * </p>
+     * @param iterations number of passes over the positions per timed pass.
+     */
+    public static void stagedGenerationBenchmark(int iterations){
+        ArrayList<String> game = new ArrayList<>(Arrays.asList(
+            "e4", "e5", "Nf3", "d6", "d4", "Bg4", "dxe5", "Bxf3", "Qxf3", "dxe5", "Bc4", "Nf6", "Qb3", "Qe7", "Nc3", "c6",
+            "Bg5", "b5", "Nxb5", "cxb5", "Bxb5+", "Nbd7", "O-O-O", "Rd8", "Rxd7", "Rxd7", "Rd1", "Qe6", "Bxd7+", "Nxd7",
+            "Qb8+", "Nxb8"));
+        ArrayList<Board> positions = new ArrayList<>();
+        ArrayList<MovePicker> pickers = new ArrayList<>();
+        int[] buffer = new int[Board.MAX_MOVES];
+        int[] hashMoves = new int[game.size()];
+        Board board = new Board();
+        for (String san : game){
+            board.applySan(san);
+            Board position = board.copy();
+            // The last generated move stands in for a transposition table move
+            hashMoves[positions.size()] = buffer[position.generateValidMoves(position.getTurnInt(), buffer) - 1];
+            positions.add(position);
+            pickers.add(new MovePicker(position));
+        }
+
+        // Correctness check
+        for (int i = 0; i < positions.size(); i++){
+            MovePicker picker = pickers.get(i);
+            picker.init(0, 0, 0);
+            int count = 0;
+            while (picker.next() != 0){
+                count++;
+            }
+            if (count != positions.get(i).generateValidMoves(positions.get(i).getTurnInt(), buffer)){
+                System.out.println("stagedGenerationBenchmark(): Move count mismatch on position " + i);
+                return;
+            }
+        }
+
+        long sink = 0L;
+        // Warmup
+        for (int i = 0; i < iterations / 4; i++){
+            for (int j = 0; j < positions.size(); j++){
+                sink += positions.get(j).generateValidMoves(positions.get(j).getTurnInt(), buffer);
+                sink += firstPick(pickers.get(j), hashMoves[j]) + firstPick(pickers.get(j), 0) + allPicks(pickers.get(j));
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (Board position : positions){
+                sink += position.generateValidMoves(position.getTurnInt(), buffer);
+            }
+        }
+        long fullTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (int j = 0; j < pickers.size(); j++){
+                sink += firstPick(pickers.get(j), hashMoves[j]);
+            }
+        }
+        long hashTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (MovePicker picker : pickers){
+                sink += firstPick(picker, 0);
+            }
+        }
+        long firstTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            for (MovePicker picker : pickers){
+                sink += allPicks(picker);
+            }
+        }
+        long allTime = System.nanoTime() - start;
+
+        long calls = (long)iterations * positions.size();
+        System.out.println("stagedGenerationBenchmark(): " + positions.size() + " positions");
+        System.out.println(String.format("  full generation:    %.2f ns/position", (double)fullTime / calls));
+        System.out.println(String.format("  picker, hash move:  %.2f ns/position", (double)hashTime / calls));
+        System.out.println(String.format("  picker, first move: %.2f ns/position", (double)firstTime / calls));
+        System.out.println(String.format("  picker, every move: %.2f ns/position", (double)allTime / calls));
+        System.out.println("  (sink " + (sink & 1) + ")");
+    }
+
+    /**
+     * Searches every {@link Perft#REFERENCE_POSITIONS} position to a fixed depth with {@link Search}, printing the<br>
+     * node count, time, best move and transposition table counters of each and the totals. Every search gets a new<br>
+     * table, so the results don't depend on the order the positions are searched in.
+     *
+     * <p>
+     * The total node count to a fixed depth is the measure of how well the search prunes, and is deterministic, so it<br>
+     * can be compared before and after a change to move ordering or pruning. The first pass is a warmup.
+     * </p>
+     * @param depth search depth in plies.
+     */
+    public static void searchBenchmark(int depth){
+        long totalNodes = 0L;
+        long totalTime = 0L;
+        for (int pass = 0; pass < 2; pass++){
+            totalNodes = 0L;
+            totalTime = 0L;
+            for (Object[] reference : Perft.REFERENCE_POSITIONS){
+                Search search = new Search(new Board((String)reference[1]));
+                long start = System.nanoTime();
+                SearchInfo info = search.search(SearchLimits.depth(depth));
+                long time = System.nanoTime() - start;
+                totalNodes += info.getNodes();
+                totalTime += time;
+                if (pass == 1){
+                    TranspositionTable table = search.getTable();
+                    System.out.println(String.format("  %-10s %10d nodes %8.1f ms  best %s  tt hits %d/%d collisions %d", reference[0],
+                                                     info.getNodes(), time / 1e6, PackedMove.toUci(info.getBestMove()),
+                                                     table.getHits(), table.getProbes(), table.getCollisions()));
+                }
+            }
+        }
+        System.out.println("searchBenchmark(): depth " + depth + " over " + Perft.REFERENCE_POSITIONS.length + " positions");
+        System.out.println(String.format("  total: %d nodes in %.1f ms (%.0f nodes/s)", totalNodes, totalTime / 1e6, totalNodes / (totalTime / 1e9)));
+    }
+
+    /**
+     * Measures the Lazy SMP time-to-depth speedup, searching every {@link Perft#REFERENCE_POSITIONS} position to a fixed<br>
+     * depth with each thread count and printing the total time of each and its speedup over a single thread.
+     *
+     * <p>
+     * Each search gets a new transposition table, so earlier searches don't help later ones. Thread counts above the<br>
+     * machine's available processors are still run, but can't be faster than the single thread search. A first<br>
+     * untimed run is a warmup.
+     * </p>
+     * @param depth search depth in plies.
+     * @param threadCounts thread counts to measure, the first is the one speedups are relative to, usually 1.
+     */
+    public static void parallelSearchBenchmark(int depth, int[] threadCounts){
+        System.out.println("parallelSearchBenchmark(): depth " + depth + " over " + Perft.REFERENCE_POSITIONS.length +
+                           " positions, " + Runtime.getRuntime().availableProcessors() + " available processors");
+        // Warmup
+        timeParallelSearch(depth, threadCounts[0]);
+        long baseTime = 0L;
+        for (int threads : threadCounts){
+            long[] result = timeParallelSearch(depth, threads);
+            if (baseTime == 0L){
+                baseTime = result[1];
+            }
+            System.out.println(String.format("  %2d threads: %10d nodes in %8.1f ms  speedup %.2fx", threads, result[0],
+                                             result[1] / 1e6, (double)baseTime / result[1]));
+        }
+    }
+
+    // Returns the total nodes and nanoseconds of searching every reference position
+    private static long[] timeParallelSearch(int depth, int threads){
+        long totalNodes = 0L;
+        long totalTime = 0L;
+        for (Object[] reference : Perft.REFERENCE_POSITIONS){
+            Search search = new Search(new Board((String)reference[1]), new TranspositionTable());
+            search.setThreads(threads);
+            long start = System.nanoTime();
+            SearchInfo info = search.search(SearchLimits.depth(depth));
+            totalTime += System.nanoTime() - start;
+            totalNodes += search.getNodes();
+            if (info.getDepth() != depth){
+                System.out.println("parallelSearchBenchmark(): " + reference[0] + " stopped at depth " + info.getDepth());
+            }
+        }
+        return new long[]{totalNodes, totalTime};
+    }
+
+    private static long firstPick(MovePicker picker, int hashMove){
+        picker.init(hashMove, 0, 0);
+        return picker.next();
+    }
+
+    private static long allPicks(MovePicker picker){
+        picker.init(0, 0, 0);
+        long sum = 0L;
+        int move;
+        while ((move = picker.next()) != 0){
+            sum += move;
+        }
+        return sum;
+    }
+
+    private static long forkByCopy(Board source, int move){
+        Board fork = source.copy();
+        fork.makeMove(move);
+        return fork.getZobrist();
+    }
+
+    private static long replayRegex(ArrayList<String> game){
+        Board board = new Board();
+        try {
+            RegexParser.validateMove(game, board);
+        }
+        catch (AlgebraicParseException e){
+            return 0L;
+        }
+        return board.getZobrist();
+    }
+
+    private static long replaySan(ArrayList<String> game){
+        Board board = new Board();
+        for (String san : game){
+            board.applySan(san);
+        }
+        return board.getZobrist();
+    }
+
+    // The pre-magic Board.generateValidStraightRayMask path
+    private static long hypQuintRook(int position, long occupancy){
+        long pieceMask = (1L << (63 - position));
+        return Board.hypQuint(occupancy, Board.HORIZONTAL_RAY.get(position / 8), pieceMask) |
+               Board.hypQuint(occupancy, Board.VERTICAL_RAY.get(position % 8), pieceMask);
+    }
+
+    // The pre-magic Board.generateValidDiagonalRayMask path
+    private static long hypQuintBishop(int position, long occupancy){
+        long pieceMask = (1L << (63 - position));
+        return Board.hypQuint(occupancy, Board.DIAGONAL_MOVE.get(position), pieceMask) |
+               Board.hypQuint(occupancy, Board.ANTI_MOVE.get(position), pieceMask);
+    }
+}
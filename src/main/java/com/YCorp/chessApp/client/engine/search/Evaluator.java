@@ -0,0 +1,161 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import com.YCorp.chessApp.client.engine.Board;
+
+/**
+ * Static evaluation of a {@link Board} position, in centipawns from the point of view of the player to move.
+ *
+ * <p>
+ * Material plus piece/square bonuses, using the piece values and tables of the well known "simplified evaluation<br>
+ * function". The king uses a middlegame table (stay behind the pawns) and an endgame table (centralize), blended by<br>
+ * the remaining non-pawn material, so the king walks up the board as pieces come off.
+ * </p>
+ *
+ * <p>
+ * Tables are written from white's point of view with a8 first, as they are usually printed. They are converted once<br>
+ * into {@link PIECE_SQUARE}, indexed by piece value + 6 and RLERF square (see <a href="../Board.html#RLERF">RLERF encoding</a><br>
+ * in {@link Board}), holding material plus bonus with the sign of the piece, so evaluating is a sum of table loads.
+ * </p>
+ */
+public final class Evaluator {
+    /**
+     * Piece values in centipawns indexed by absolute piece value, the king has none as it is never captured.
+     */
+    public static final int[] PIECE_VALUES = new int[]{0, 100, 320, 330, 500, 900, 0};
+
+    // Game phase weight of each piece, a full set of pieces adds up to MAX_PHASE
+    private static final int[] PHASE_WEIGHTS = new int[]{0, 0, 1, 1, 2, 4, 0};
+    private static final int MAX_PHASE = 24;
+
+    private static final int[] PAWN_TABLE = new int[]{
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0
+    };
+    private static final int[] KNIGHT_TABLE = new int[]{
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50
+    };
+    private static final int[] BISHOP_TABLE = new int[]{
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20
+    };
+    private static final int[] ROOK_TABLE = new int[]{
+         0,  0,  0,  0,  0,  0,  0,  0,
+         5, 10, 10, 10, 10, 10, 10,  5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+        -5,  0,  0,  0,  0,  0,  0, -5,
+         0,  0,  0,  5,  5,  0,  0,  0
+    };
+    private static final int[] QUEEN_TABLE = new int[]{
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20
+    };
+    private static final int[] KING_MIDDLEGAME_TABLE = new int[]{
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20
+    };
+    private static final int[] KING_ENDGAME_TABLE = new int[]{
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50
+    };
+
+    /**
+     * Material plus piece/square bonus indexed by <code>((piece + 6) &lt;&lt; 6) | square</code>, negative for black pieces.<br>
+     * The king entries hold the middlegame bonus only, the endgame one is in {@link KING_ENDGAME}.
+     */
+    private static final int[] PIECE_SQUARE = new int[13 * 64];
+    private static final int[] KING_ENDGAME = new int[13 * 64];
+
+    static {
+        int[][] tables = new int[][]{null, PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLEGAME_TABLE};
+        for (int square = 0; square < 64; square++){
+            // The tables start at a8, which is RLERF square 56, flipping the rank bits converts between the two
+            int whiteIndex = square ^ 56;
+            int blackIndex = square;
+            for (int absPiece = 1; absPiece <= 6; absPiece++){
+                PIECE_SQUARE[((absPiece + 6) << 6) | square] = PIECE_VALUES[absPiece] + tables[absPiece][whiteIndex];
+                PIECE_SQUARE[((6 - absPiece) << 6) | square] = -(PIECE_VALUES[absPiece] + tables[absPiece][blackIndex]);
+            }
+            KING_ENDGAME[(12 << 6) | square] = KING_ENDGAME_TABLE[whiteIndex];
+            KING_ENDGAME[square] = -KING_ENDGAME_TABLE[blackIndex];
+        }
+    }
+
+    private Evaluator(){}
+
+    /**
+     * Evaluates the position of the provided board.
+     *
+     * @param board the position to evaluate, left unchanged.
+     * @return score in centipawns, positive when the player to move is better.
+     */
+    public static int evaluate(Board board){
+        int score = 0;
+        int phase = 0;
+        for (int piece = -5; piece <= 5; piece++){
+            if (piece == 0){
+                continue;
+            }
+            long pieces = board.getPieceBitboard(piece);
+            phase += PHASE_WEIGHTS[Math.abs(piece)] * Long.bitCount(pieces);
+            int offset = (piece + 6) << 6;
+            while (pieces != 0){
+                score += PIECE_SQUARE[offset | (63 - Long.numberOfTrailingZeros(pieces))];
+                pieces &= pieces - 1;
+            }
+        }
+
+        // Blend the king tables by phase, promotions can push it past a full set of pieces
+        phase = Math.min(phase, MAX_PHASE);
+        int kingScore = 0;
+        for (int king = -6; king <= 6; king += 12){
+            long kingBitboard = board.getPieceBitboard(king);
+            if (kingBitboard != 0){
+                int index = ((king + 6) << 6) | (63 - Long.numberOfTrailingZeros(kingBitboard));
+                kingScore += ((PIECE_SQUARE[index] * phase) + (KING_ENDGAME[index] * (MAX_PHASE - phase))) / MAX_PHASE;
+            }
+        }
+        score += kingScore;
+
+        return (board.getTurnInt() > 0) ? score : -score;
+    }
+}
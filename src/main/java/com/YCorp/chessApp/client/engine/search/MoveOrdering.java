@@ -0,0 +1,127 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import java.util.Arrays;
+
+import com.YCorp.chessApp.client.engine.MovePicker;
+import com.YCorp.chessApp.client.engine.PackedMove;
+
+/**
+ * Quiet move ordering tables of one {@link Search} thread: killer moves, butterfly history and counter moves.
+ *
+ * <p>
+ * Captures are ordered by {@link MovePicker} on their own, these tables order the quiet moves, which make up most of<br>
+ * a move list, from the quiet moves that caused beta cutoffs elsewhere in the search:
+ * <ul>
+ * <li> killers: the last two quiet cutoff moves at each ply, as sibling positions are often refuted by the same move</li>
+ * <li> history: a score per side, origin and destination square (a "butterfly" table), raised for the quiet move that<br>
+ * cut off and lowered for the quiet moves searched before it, weighted by the remaining depth</li>
+ * <li> counter moves: the last quiet cutoff move played in reply to each piece moving to each square</li>
+ * </ul>
+ * All of them are primitive arrays indexed directly by the move, so nothing is allocated while searching.
+ * </p>
+ *
+ * <p>
+ * History scores are updated with a "gravity" formula that pulls them towards {@link HISTORY_MAX}, so they never<br>
+ * overflow and recent cutoffs weigh more than old ones. The tables are kept between searches of one game, as a new<br>
+ * search mostly revisits the positions of the last, see {@link newSearch}.
+ * </p>
+ */
+public final class MoveOrdering {
+    public static final int HISTORY_MAX = 16384;
+
+    private final int[] killers = new int[Search.MAX_PLY * 2];
+    // White's table first, each indexed by (origin << 6) | destination
+    private final int[][] history = new int[][]{new int[64 * 64], new int[64 * 64]};
+    // Indexed by ((piece + 6) << 6) | destination of the move replied to
+    private final int[] counterMoves = new int[13 * 64];
+
+    /**
+     * Forgets every table, ie. before searching an unrelated game.
+     */
+    public void clear(){
+        Arrays.fill(this.killers, 0);
+        Arrays.fill(this.history[0], 0);
+        Arrays.fill(this.history[1], 0);
+        Arrays.fill(this.counterMoves, 0);
+    }
+
+    /**
+     * Prepares the tables for a new search. The killers are cleared as the plies no longer match the positions, and<br>
+     * history scores are halved so the new search's cutoffs soon outweigh them.
+     */
+    public void newSearch(){
+        Arrays.fill(this.killers, 0);
+        for (int[] sideHistory : this.history){
+            for (int i = 0; i < sideHistory.length; i++){
+                sideHistory[i] /= 2;
+            }
+        }
+    }
+
+    //#region Lookups
+    public int getKiller1(int ply){
+        return this.killers[ply * 2];
+    }
+
+    public int getKiller2(int ply){
+        return this.killers[(ply * 2) + 1];
+    }
+
+    /**
+     * Returns the counter move to the provided move, 0 if none or if no move was provided.
+     */
+    public int getCounterMove(int previousMove){
+        return (previousMove == 0) ? 0 : this.counterMoves[counterIndex(previousMove)];
+    }
+
+    /**
+     * Returns the history table of a player, indexed by <code>(origin &lt;&lt; 6) | destination</code>, as taken by<br>
+     * {@link MovePicker#init(int, int, int, int, int[])}. The table itself is returned and must not be written.
+     */
+    public int[] getHistory(int sign){
+        return this.history[(sign > 0) ? 0 : 1];
+    }
+    //#endregion
+
+    /**
+     * Records a beta cutoff on a quiet move.
+     *
+     * @param ply distance of the position from the root.
+     * @param sign player who played the cutoff move.
+     * @param previousMove the opponent's move leading to the position, 0 if none.
+     * @param move the quiet move that cut off.
+     * @param depth remaining depth of the position, deeper cutoffs weigh more.
+     * @param quietsTried quiet moves searched before the cutoff move without cutting off.
+     * @param quietCount number of moves in quietsTried.
+     */
+    public void updateCutoff(int ply, int sign, int previousMove, int move, int depth, int[] quietsTried, int quietCount){
+        int slot = ply * 2;
+        if (this.killers[slot] != move){
+            this.killers[slot + 1] = this.killers[slot];
+            this.killers[slot] = move;
+        }
+        if (previousMove != 0){
+            this.counterMoves[counterIndex(previousMove)] = move;
+        }
+
+        int[] sideHistory = getHistory(sign);
+        int bonus = Math.min(depth * depth, HISTORY_MAX / 4);
+        updateHistory(sideHistory, historyIndex(move), bonus);
+        for (int i = 0; i < quietCount; i++){
+            updateHistory(sideHistory, historyIndex(quietsTried[i]), -bonus);
+        }
+    }
+
+    // Moves the score towards +-HISTORY_MAX by bonus, by less the closer it already is
+    private static void updateHistory(int[] sideHistory, int index, int bonus){
+        sideHistory[index] += bonus - ((sideHistory[index] * Math.abs(bonus)) / HISTORY_MAX);
+    }
+
+    private static int historyIndex(int move){
+        return (PackedMove.getOrigin(move) << 6) | PackedMove.getDestination(move);
+    }
+
+    private static int counterIndex(int move){
+        return ((PackedMove.getPiece(move) + 6) << 6) | PackedMove.getDestination(move);
+    }
+}
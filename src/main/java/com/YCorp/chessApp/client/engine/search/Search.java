@@ -0,0 +1,516 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.YCorp.chessApp.client.engine.Board;
+import com.YCorp.chessApp.client.engine.MovePicker;
+import com.YCorp.chessApp.client.engine.PackedMove;
+
+/**
+ * Negamax alpha-beta search with iterative deepening, choosing a move for the player to move on a {@link Board}.
+ *
+ * <p>
+ * Each iteration searches the root one ply deeper than the last, until a {@link SearchLimits} depth, node or time<br>
+ * limit is reached. The principal variation (PV) of the previous iteration is searched first at every ply it covers,<br>
+ * so the deeper iteration starts from the best line found so far and gets most of its cutoffs early. An iteration<br>
+ * stopped by a limit is thrown away and the last completed one is returned, except that depth 1 always completes.
+ * </p>
+ *
+ * <p>
+ * Every searched position is stored in a {@link TranspositionTable}. Positions found there with at least the remaining<br>
+ * depth and a usable bound are cut off without searching, and the stored move is tried first otherwise. As cutoffs<br>
+ * leave the PV short, each completed iteration's PV is extended with the table moves that follow it.
+ * </p>
+ *
+ * <p>
+ * Moves are produced by one {@link MovePicker} per ply, ordered by the table move, captures by MVV-LVA, then the<br>
+ * killer, counter move and history tables of {@link MoveOrdering}, and played with {@link Board#makeMove}/{@link Board#unmakeMove},<br>
+ * so the search allocates nothing per node and leaves the board as it found it. At the depth limit a capture only<br>
+ * {@link quiescence} search runs until the position is quiet, and its leaves are scored by {@link Evaluator}.<br>
+ * Checkmate scores {@link MATE} minus the distance in plies from the root, so shorter mates score higher, and positions<br>
+ * drawn by repetition, the fifty move rule or bare material score 0.
+ * </p>
+ *
+ * <p>
+ * With more than one thread (see {@link setThreads}) the search runs as "Lazy SMP": helper threads, each with its own<br>
+ * {@link Board#copy()} and searcher, search the same root position alongside the main thread, sharing nothing but the<br>
+ * transposition table. Every other helper starts one ply deeper so the threads don't all search the same iteration.<br>
+ * The helpers' results only reach the main thread through the table, filling it with cutoffs and best moves ahead of<br>
+ * it, and the main thread's iterations are the ones reported and returned. Helpers stop when the main thread does.
+ * </p>
+ *
+ * <p>
+ * A Search works on the Board it was created with, which must not be touched by anything else while a search is<br>
+ * running, ie. give it a {@link Board#copy()} of the game board. {@link stop} may be called from another thread.
+ * </p>
+ */
+public final class Search {
+    public static final int MAX_DEPTH = 64;
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    /**
+     * Scores at or beyond this (in absolute value) are mate scores, leaving room for mates up to {@link MAX_PLY} plies away.
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    // Time and node limits are only checked every this many nodes, must be a power of two minus one
+    private static final long LIMIT_CHECK_MASK = 1023L;
+
+    private final Board board;
+    private final TranspositionTable table;
+    // 0 for the main thread, helpers are numbered from 1 and have the main thread's search, null for the main thread
+    private final int threadIndex;
+    private final Search main;
+    private int threads = 1;
+    private volatile Search[] helpers = new Search[0];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final StaticExchange exchange;
+    // Quiet moves searched at each ply without a cutoff, lowered in the history table when a later one cuts off
+    private final int[][] quietsTried = new int[MAX_PLY][Board.MAX_MOVES];
+    /**
+     * Triangular PV table, row ply holds the best line found from that ply, from index ply to pvLength[ply] - 1.
+     */
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+
+    private SearchLimits limits;
+    // Written by the searching thread only, other threads read it for counts and limits that may be slightly stale
+    private long nodes;
+    private long startNanos;
+    private int completedDepth;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private Consumer<SearchInfo> listener;
+
+    /**
+     * Creates a search with its own {@link TranspositionTable} of {@link TranspositionTable#DEFAULT_MEGABYTES}.
+     */
+    public Search(Board board){
+        this(board, new TranspositionTable());
+    }
+
+    /**
+     * Creates a search using the provided table, which may be shared with other searches and kept between searches.
+     */
+    public Search(Board board, TranspositionTable table){
+        this(board, table, 0, null);
+    }
+
+    private Search(Board board, TranspositionTable table, int threadIndex, Search main){
+        this.board = board;
+        this.table = table;
+        this.threadIndex = threadIndex;
+        this.main = main;
+        this.exchange = new StaticExchange(board);
+        for (int ply = 0; ply < MAX_PLY; ply++){
+            this.pickers[ply] = new MovePicker(board);
+        }
+    }
+
+    /**
+     * Sets the listener notified with every completed iteration, ie. to print search progress. null for none.
+     */
+    public void setListener(Consumer<SearchInfo> listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the number of threads searching, the calling thread included, ie.<br>
+     * <code>Runtime.getRuntime().availableProcessors()</code>. Takes effect on the next {@link search}.
+     *
+     * @param threads number of threads, at least 1.
+     */
+    public void setThreads(int threads){
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Stops a running search as soon as possible, safe to call from another thread. The search still returns the<br>
+     * deepest completed iteration.
+     */
+    public void stop(){
+        this.stopRequested = true;
+        for (Search helper : this.helpers){
+            helper.stop();
+        }
+    }
+
+    /**
+     * Searches the current position of the board until a limit is reached.
+     *
+     * @param limits depth, node and time limits of the search.
+     * @return the deepest completed iteration. If the position has no legal moves its best move is 0 and its score is<br>
+     * mated or 0 for stalemate.
+     */
+    public SearchInfo search(SearchLimits limits){
+        this.stopRequested = false;
+        this.table.newSearch();
+        // Timed from before the helpers start, they may search a while before the main thread gets to run
+        long startNanos = System.nanoTime();
+        Thread[] helperThreads = startHelpers(limits, startNanos);
+        try {
+            return iterativeDeepening(limits, 1, startNanos);
+        }
+        finally {
+            stopHelpers(helperThreads);
+        }
+    }
+
+    private SearchInfo iterativeDeepening(SearchLimits limits, int startDepth, long startNanos){
+        this.limits = limits;
+        this.nodes = 0L;
+        this.startNanos = startNanos;
+        this.completedDepth = 0;
+        this.stopped = false;
+        this.previousPv = new int[0];
+        this.ordering.newSearch();
+
+        SearchInfo best = null;
+        for (int depth = startDepth; depth <= limits.getMaxDepth(); depth++){
+            this.followPv = true;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (this.stopped){
+                break;
+            }
+            this.completedDepth = depth;
+            this.previousPv = extendPv(depth);
+            best = new SearchInfo(depth, score, getNodes(), elapsedMillis(), this.previousPv.clone(), this.table.hashfull());
+            if (this.listener != null){
+                this.listener.accept(best);
+            }
+            // No legal moves at the root, or a forced mate already found, deeper iterations can't change the result
+            if ((this.previousPv.length == 0) || (Math.abs(score) >= MATE_BOUND)){
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Starts the Lazy SMP helper threads on copies of the board. Helpers check the same limits as the main thread,<br>
+     * against the node count of every thread, and are also stopped by it when it returns.
+     */
+    private Thread[] startHelpers(SearchLimits limits, long startNanos){
+        Search[] newHelpers = new Search[this.threads - 1];
+        for (int i = 0; i < newHelpers.length; i++){
+            newHelpers[i] = new Search(this.board.copy(), this.table, i + 1, this);
+        }
+        // Every helper must be in place before any starts, they count each other's nodes
+        this.helpers = newHelpers;
+        Thread[] helperThreads = new Thread[newHelpers.length];
+        for (int i = 0; i < newHelpers.length; i++){
+            Search helper = newHelpers[i];
+            // Odd helpers skip ahead a ply, so half the threads are always an iteration ahead of the main thread
+            int startDepth = Math.min(1 + (helper.threadIndex & 1), limits.getMaxDepth());
+            helperThreads[i] = new Thread(() -> helper.iterativeDeepening(limits, startDepth, startNanos), "search-helper-" + helper.threadIndex);
+            helperThreads[i].setDaemon(true);
+            helperThreads[i].start();
+        }
+        return helperThreads;
+    }
+
+    private void stopHelpers(Thread[] helperThreads){
+        for (Search helper : this.helpers){
+            helper.stop();
+        }
+        for (Thread helperThread : helperThreads){
+            try {
+                helperThread.join();
+            }
+            catch (InterruptedException e){
+                // Helpers are stopped already and are daemons, leave them to finish and pass the interrupt on
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta){
+        if (depth <= 0){
+            return quiescence(ply, alpha, beta);
+        }
+        this.pvLength[ply] = ply;
+        this.nodes++;
+        if ((this.nodes & LIMIT_CHECK_MASK) == 0){
+            checkLimits();
+        }
+        if (this.stopped){
+            return 0;
+        }
+
+        if ((ply > 0) && isDraw()){
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1){
+            return Evaluator.evaluate(this.board);
+        }
+
+        long key = this.board.getZobrist();
+        long entry = this.table.probe(key);
+        int hashMove = TranspositionTable.move(entry);
+        // The root is always searched so there is a best move and PV to report
+        if ((entry != 0) && (ply > 0) && (TranspositionTable.depth(entry) >= depth)){
+            int entryScore = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+            if ((bound == TranspositionTable.BOUND_EXACT) ||
+                ((bound == TranspositionTable.BOUND_LOWER) && (entryScore >= beta)) ||
+                ((bound == TranspositionTable.BOUND_UPPER) && (entryScore <= alpha))){
+                return entryScore;
+            }
+        }
+
+        if (this.followPv){
+            if (ply < this.previousPv.length){
+                hashMove = this.previousPv[ply];
+            }
+            else {
+                this.followPv = false;
+            }
+        }
+
+        int sign = this.board.getTurnInt();
+        int previousMove = this.board.peekMadeMove();
+        MovePicker picker = this.pickers[ply];
+        picker.init(hashMove, this.ordering.getKiller1(ply), this.ordering.getKiller2(ply),
+                    this.ordering.getCounterMove(previousMove), this.ordering.getHistory(sign));
+        int[] quiets = this.quietsTried[ply];
+        int quietCount = 0;
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = 0;
+        int moveCount = 0;
+        int move;
+        while ((move = picker.next()) != 0){
+            this.board.makeMove(move);
+            moveCount++;
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            this.board.unmakeMove();
+            // Only the first move searched can be on the previous PV
+            this.followPv = false;
+            if (this.stopped){
+                return 0;
+            }
+
+            if (score > bestScore){
+                bestScore = score;
+                if (score > alpha){
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta){
+                        if (PackedMove.isQuiet(move)){
+                            this.ordering.updateCutoff(ply, sign, previousMove, move, depth, quiets, quietCount);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (PackedMove.isQuiet(move)){
+                quiets[quietCount++] = move;
+            }
+        }
+
+        if (moveCount == 0){
+            bestScore = this.board.isInCheck(sign) ? -MATE + ply : 0;
+        }
+        // A fail low has no best move, storing 0 keeps the move of an earlier search of the position
+        int bound = (bestScore >= beta) ? TranspositionTable.BOUND_LOWER :
+                    (bestScore > originalAlpha) ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        this.table.store(key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+    /**
+     * Searches only captures and promotions below the depth limit, so leaves are never scored in the middle of an<br>
+     * exchange. The player to move may "stand pat" on the static evaluation instead of capturing, so the score never<br>
+     * drops below it, and captures losing material by {@link StaticExchange} are skipped as they can't beat standing<br>
+     * pat. In check there is no standing pat, every evasion is searched and mates are scored as in {@link negamax}.
+     */
+    private int quiescence(int ply, int alpha, int beta){
+        this.pvLength[ply] = ply;
+        this.nodes++;
+        if ((this.nodes & LIMIT_CHECK_MASK) == 0){
+            checkLimits();
+        }
+        if (this.stopped){
+            return 0;
+        }
+
+        // Cheap after a capture, which resets the fifty move clock the repetition scan is bounded by
+        if ((ply > 0) && isDraw()){
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1){
+            return Evaluator.evaluate(this.board);
+        }
+
+        int sign = this.board.getTurnInt();
+        boolean inCheck = this.board.isInCheck(sign);
+        int bestScore = -INFINITY;
+        MovePicker picker = this.pickers[ply];
+        if (inCheck){
+            picker.init(0, 0, 0);
+        }
+        else {
+            bestScore = Evaluator.evaluate(this.board);
+            if (bestScore >= beta){
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+            picker.initNoisy(0);
+        }
+
+        int moveCount = 0;
+        int move;
+        while ((move = picker.next()) != 0){
+            moveCount++;
+            if (!inCheck && (this.exchange.evaluate(move) < 0)){
+                continue;
+            }
+            this.board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            this.board.unmakeMove();
+            if (this.stopped){
+                return 0;
+            }
+
+            if (score > bestScore){
+                bestScore = score;
+                if (score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (inCheck && (moveCount == 0)){
+            return -MATE + ply;
+        }
+        return bestScore;
+    }
+
+    // A single repetition is scored as a draw, repeating is never better than the position it repeats
+    private boolean isDraw(){
+        return isFiftyMoveDraw() || (this.board.countRepetitions() >= 2) || isMaterialDraw();
+    }
+
+    // Checkmate on the move that reaches the fifty move limit takes precedence over the draw
+    private boolean isFiftyMoveDraw(){
+        if (this.board.getHalfClock() < 100){
+            return false;
+        }
+        int sign = this.board.getTurnInt();
+        return !this.board.isInCheck(sign) || this.board.hasAnyLegalMove(sign);
+    }
+
+    /**
+     * Only bare kings, or a king and a single bishop or knight against a bare king, cannot mate at all. Stricter than<br>
+     * {@link Board#checkInsufficientMaterial()}, which also draws positions like two bishops against a bare king, as<br>
+     * the search must still be able to find mates there.
+     */
+    private boolean isMaterialDraw(){
+        Board b = this.board;
+        if ((b.getPieceCount(1) | b.getPieceCount(-1) | b.getPieceCount(4) | b.getPieceCount(-4) | b.getPieceCount(5) | b.getPieceCount(-5)) != 0){
+            return false;
+        }
+        int minors = b.getPieceCount(2) + b.getPieceCount(-2) + b.getPieceCount(3) + b.getPieceCount(-3);
+        return minors <= 1;
+    }
+
+    // The line from this ply is the move followed by the line found below it
+    private void updatePv(int ply, int move){
+        int[] row = this.pvTable[ply];
+        row[ply] = move;
+        int childLength = this.pvLength[ply + 1];
+        System.arraycopy(this.pvTable[ply + 1], ply + 1, row, ply + 1, childLength - (ply + 1));
+        this.pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    /**
+     * Returns the root PV of the iteration just completed, followed by the table moves after it up to the iteration<br>
+     * depth. Table cutoffs end the PV at the cut node, the table usually still holds the line below it. Each table move<br>
+     * is checked to be legal, as it may come from a colliding position.
+     */
+    private int[] extendPv(int depth){
+        int length = this.pvLength[0];
+        int[] pv = new int[Math.max(length, depth)];
+        System.arraycopy(this.pvTable[0], 0, pv, 0, length);
+        for (int i = 0; i < length; i++){
+            this.board.makeMove(pv[i]);
+        }
+        while ((length > 0) && (length < depth)){
+            int move = TranspositionTable.move(this.table.probe(this.board.getZobrist()));
+            if (!this.board.isLegalMove(move)){
+                break;
+            }
+            pv[length++] = move;
+            this.board.makeMove(move);
+        }
+        for (int i = 0; i < length; i++){
+            this.board.unmakeMove();
+        }
+        return (length == pv.length) ? pv : Arrays.copyOf(pv, length);
+    }
+
+    private void checkLimits(){
+        // Depth 1 is always completed by the main thread so there is a move to return, helpers have nothing to return
+        if ((this.completedDepth == 0) && (this.main == null)){
+            return;
+        }
+        if (this.stopRequested){
+            this.stopped = true;
+        }
+        long totalNodes = (this.main != null) ? this.main.getNodes() : getNodes();
+        if ((this.limits.getMaxNodes() > 0) && (totalNodes >= this.limits.getMaxNodes())){
+            this.stopped = true;
+        }
+        if ((this.limits.getMaxTimeMillis() > 0) && (elapsedMillis() >= this.limits.getMaxTimeMillis())){
+            this.stopped = true;
+        }
+    }
+
+    private long elapsedMillis(){
+        return (System.nanoTime() - this.startNanos) / 1_000_000L;
+    }
+
+    //#region Getters
+    /**
+     * Returns the nodes searched by every thread of the current or last search.
+     */
+    public long getNodes(){
+        long total = this.nodes;
+        for (Search helper : this.helpers){
+            total += helper.nodes;
+        }
+        return total;
+    }
+
+    public int getThreads(){
+        return this.threads;
+    }
+
+    public Board getBoard(){
+        return this.board;
+    }
+
+    public TranspositionTable getTable(){
+        return this.table;
+    }
+
+    /**
+     * Returns the move ordering tables of the main thread, kept between searches, ie. to {@link MoveOrdering#clear}<br>
+     * them for a new game.
+     */
+    public MoveOrdering getOrdering(){
+        return this.ordering;
+    }
+    //#endregion
+}
@@ -0,0 +1,109 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import com.YCorp.chessApp.client.engine.PackedMove;
+
+/**
+ * Result of one completed iterative deepening iteration of a {@link Search}.
+ *
+ * <p>
+ * Reported to the search listener after every iteration, and returned by {@link Search#search} for the deepest<br>
+ * completed one. The principal variation is held as {@link PackedMove} ints, its first move is the best move.<br>
+ * {@link toString} formats the iteration like a UCI info line, ie.<br>
+ * <code>depth 6 score cp 35 nodes 120345 nps 1504312 time 80 hashfull 12 pv e2e4 e7e5 g1f3</code>
+ * </p>
+ */
+public final class SearchInfo {
+    private final int depth;
+    private final int score;
+    private final long nodes;
+    private final long timeMillis;
+    private final int[] pv;
+    private final int hashfull;
+
+    SearchInfo(int depth, int score, long nodes, long timeMillis, int[] pv, int hashfull){
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.pv = pv;
+        this.hashfull = hashfull;
+    }
+
+    //#region Getters
+    public int getDepth(){
+        return this.depth;
+    }
+
+    /**
+     * Returns the score in centipawns from the point of view of the player to move at the root, see {@link isMate}.
+     */
+    public int getScore(){
+        return this.score;
+    }
+
+    public long getNodes(){
+        return this.nodes;
+    }
+
+    public long getTimeMillis(){
+        return this.timeMillis;
+    }
+
+    public long getNodesPerSecond(){
+        return (this.nodes * 1000L) / Math.max(1L, this.timeMillis);
+    }
+
+    /**
+     * Returns the best move in {@link PackedMove} encoding, 0 if the root position has no legal moves.
+     */
+    public int getBestMove(){
+        return (this.pv.length > 0) ? this.pv[0] : 0;
+    }
+
+    /**
+     * Returns a copy of the principal variation, best move first.
+     */
+    public int[] getPv(){
+        return this.pv.clone();
+    }
+
+    /**
+     * Returns the permille of the transposition table filled by the search, see {@link TranspositionTable#hashfull()}.
+     */
+    public int getHashfull(){
+        return this.hashfull;
+    }
+
+    public boolean isMate(){
+        return Math.abs(this.score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * Returns the number of moves to mate, positive if the player to move mates, negative if they are mated, 0 if<br>
+     * {@link isMate} is false.
+     */
+    public int getMateIn(){
+        if (!isMate()){
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(this.score);
+        return (this.score > 0) ? (plies + 1) / 2 : -(plies / 2);
+    }
+    //#endregion
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(this.depth);
+        sb.append(isMate() ? " score mate " + getMateIn() : " score cp " + this.score);
+        sb.append(" nodes ").append(this.nodes);
+        sb.append(" nps ").append(getNodesPerSecond());
+        sb.append(" time ").append(this.timeMillis);
+        sb.append(" hashfull ").append(this.hashfull);
+        sb.append(" pv");
+        for (int move : this.pv){
+            sb.append(' ').append(PackedMove.toUci(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.YCorp.chessApp.client.engine.search;
+
+/**
+ * Stopping conditions for a {@link Search}, any limit of 0 is unlimited.
+ *
+ * <p>
+ * The search stops at the first limit reached. Depth 1 is always completed, so a best move is returned even when the<br>
+ * time or node budget is too small for it. Instances are immutable, the factory methods cover the common single limit<br>
+ * cases.
+ * </p>
+ */
+public final class SearchLimits {
+    private final int maxDepth;
+    private final long maxNodes;
+    private final long maxTimeMillis;
+
+    /**
+     * @param maxDepth deepest iteration searched, in plies, 0 for {@link Search#MAX_DEPTH}.
+     * @param maxNodes nodes after which the search is stopped, counted over every search thread, 0 for unlimited.
+     * @param maxTimeMillis wall clock time after which the search is stopped, 0 for unlimited.
+     */
+    public SearchLimits(int maxDepth, long maxNodes, long maxTimeMillis){
+        this.maxDepth = ((maxDepth <= 0) || (maxDepth > Search.MAX_DEPTH)) ? Search.MAX_DEPTH : maxDepth;
+        this.maxNodes = Math.max(0L, maxNodes);
+        this.maxTimeMillis = Math.max(0L, maxTimeMillis);
+    }
+
+    public static SearchLimits depth(int maxDepth){
+        return new SearchLimits(maxDepth, 0L, 0L);
+    }
+
+    public static SearchLimits nodes(long maxNodes){
+        return new SearchLimits(0, maxNodes, 0L);
+    }
+
+    public static SearchLimits time(long maxTimeMillis){
+        return new SearchLimits(0, 0L, maxTimeMillis);
+    }
+
+    //#region Getters
+    public int getMaxDepth(){
+        return this.maxDepth;
+    }
+
+    public long getMaxNodes(){
+        return this.maxNodes;
+    }
+
+    public long getMaxTimeMillis(){
+        return this.maxTimeMillis;
+    }
+    //#endregion
+
+    @Override
+    public String toString(){
+        return "depth " + this.maxDepth + " nodes " + this.maxNodes + " time " + this.maxTimeMillis + "ms";
+    }
+}
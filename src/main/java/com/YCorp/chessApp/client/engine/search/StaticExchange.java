@@ -0,0 +1,104 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import com.YCorp.chessApp.client.engine.Board;
+import com.YCorp.chessApp.client.engine.PackedMove;
+import com.YCorp.chessApp.client.engine.Move.MOVE_TYPE;
+
+/**
+ * Static exchange evaluation (SEE) of the capture sequence a move starts on its destination square.
+ *
+ * <p>
+ * Both players are assumed to keep recapturing on the square with their least valuable attacker, and either may stop<br>
+ * when going on would lose material. The result is the material the moving player wins or loses by the end of it, ie.<br>
+ * PxN defended by a pawn wins a knight for a pawn, QxP defended by a pawn loses a queen for a pawn. No moves are<br>
+ * played: the attackers are found with {@link Board#attackersTo(int, int, long)} and each capturing piece is removed<br>
+ * from the occupancy passed to the next query, which uncovers sliding pieces lined up behind it (x-rays), ie. a rook<br>
+ * doubled behind another.
+ * </p>
+ *
+ * <p>
+ * Pins and checks are ignored, so a pinned piece still recaptures, and pawn promotions are only counted for the<br>
+ * evaluated move itself. Values are taken from {@link Evaluator#PIECE_VALUES}, except the king, which is given<br>
+ * {@link KING_VALUE} so it only recaptures last. A StaticExchange holds its own buffer, keep one per search thread.
+ * </p>
+ */
+public final class StaticExchange {
+    /**
+     * Value of the king in exchanges, more than any number of other pieces, as capturing it ends the exchange.
+     */
+    public static final int KING_VALUE = 20000;
+
+    // One entry per capture on the square, 32 pieces can't capture more often than this
+    private static final int MAX_EXCHANGES = 34;
+
+    private static final int[] SEE_VALUES = Evaluator.PIECE_VALUES.clone();
+
+    static {
+        SEE_VALUES[6] = KING_VALUE;
+    }
+
+    private final Board board;
+    private final int[] gain = new int[MAX_EXCHANGES];
+
+    public StaticExchange(Board board){
+        this.board = board;
+    }
+
+    /**
+     * Evaluates the exchange started by a move in the current position of the board.
+     *
+     * @param move legal move in {@link PackedMove} encoding, usually a capture.
+     * @return material won in centipawns by the player making the move, negative if the exchange loses material.
+     */
+    public int evaluate(int move){
+        Board b = this.board;
+        int origin = PackedMove.getOrigin(move);
+        int dest = PackedMove.getDestination(move);
+        int piece = PackedMove.getPiece(move);
+        int sign = (piece > 0) ? 1 : -1;
+        long occupancy = b.getBitState();
+
+        int captured;
+        if (PackedMove.getType(move) == MOVE_TYPE.EN_PASSENT){
+            captured = 1;
+            occupancy &= ~(1L << (63 - (dest - (8 * sign))));
+        }
+        else {
+            captured = Math.abs(b.getPieceAtBitAddress(dest));
+        }
+        int promotion = Math.abs(PackedMove.getPromotionPiece(move));
+
+        int[] g = this.gain;
+        g[0] = SEE_VALUES[captured] + ((promotion != 0) ? SEE_VALUES[promotion] - SEE_VALUES[1] : 0);
+        // Piece standing on the square, next to be captured
+        int onSquare = (promotion != 0) ? promotion : Math.abs(piece);
+        long fromBit = 1L << (63 - origin);
+        int side = sign;
+        int depth = 0;
+        do {
+            depth++;
+            // Score if the piece on the square is captured, from the point of view of the player capturing it
+            g[depth] = SEE_VALUES[onSquare] - g[depth - 1];
+            occupancy &= ~fromBit;
+            side = -side;
+
+            // Least valuable attacker, the occupancy mask drops pieces that have already captured
+            long attackers = b.attackersTo(dest, side, occupancy) & occupancy;
+            fromBit = 0L;
+            for (int attacker = 1; (attacker <= 6) && (attackers != 0); attacker++){
+                long pieces = attackers & b.getPieceBitboard(attacker * side);
+                if (pieces != 0){
+                    fromBit = pieces & -pieces;
+                    onSquare = attacker;
+                    break;
+                }
+            }
+        } while ((fromBit != 0) && (depth < MAX_EXCHANGES - 1));
+
+        // Each player picks the better of capturing and stopping, from the last capture back to the first
+        while (--depth > 0){
+            g[depth - 1] = -Math.max(-g[depth - 1], g[depth]);
+        }
+        return g[0];
+    }
+}
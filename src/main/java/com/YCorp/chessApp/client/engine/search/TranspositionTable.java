@@ -0,0 +1,289 @@
+package com.YCorp.chessApp.client.engine.search;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.YCorp.chessApp.client.engine.PackedMove;
+import com.YCorp.chessApp.client.engine.Zobrist;
+
+/**
+ * Fixed-size transposition table keyed by the {@link Zobrist} hash of a position, shared by every {@link Search} thread.
+ *
+ * <p>
+ * Stored in a single flat long[] sized from a megabyte budget. Entries are two longs, the position key XOR'ed with<br>
+ * the data and the data itself, grouped in buckets of {@link BUCKET_ENTRIES} (64 bytes, one cache line). The data<br>
+ * long packs, from the least significant bit:
+ * <ul>
+ * <li> bits 0-21: best or refutation move in {@link PackedMove} encoding, 0 if none</li>
+ * <li> bits 22-37: score, signed 16 bit</li>
+ * <li> bits 38-45: search depth</li>
+ * <li> bits 46-47: bound type, {@link BOUND_UPPER}, {@link BOUND_LOWER} or {@link BOUND_EXACT}, never 0 for a used entry</li>
+ * <li> bits 48-55: age, the {@link newSearch} generation the entry was written in</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * No locks are taken. Readers and writers may race on an entry, so a reader can see the key long of one write and the<br>
+ * data long of another. Storing the key XOR'ed with the data means such a torn entry almost never verifies against<br>
+ * the probed key, and is treated as a miss, which is also why the data of a hit is always self consistent. Moves read<br>
+ * from the table may still belong to another position after a (rare) 64 bit key collision, so callers check them with<br>
+ * {@link com.YCorp.chessApp.client.engine.Board#isLegalMove} before playing them.
+ * </p>
+ *
+ * <p>
+ * On a store the bucket slot holding the same position is overwritten, otherwise the entry with the lowest depth,<br>
+ * less 8 plies per search generation it has aged, is replaced. Mate scores are stored relative to the node rather<br>
+ * than the root, see {@link store} and {@link score}.
+ * </p>
+ */
+public final class TranspositionTable {
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+    public static final int BUCKET_ENTRIES = 4;
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BUCKET_LONGS = BUCKET_ENTRIES * ENTRY_LONGS;
+
+    private static final long MOVE_MASK = (1L << 22) - 1;
+    private static final int SCORE_SHIFT = 22;
+    private static final int DEPTH_SHIFT = 38;
+    private static final int BOUND_SHIFT = 46;
+    private static final int AGE_SHIFT = 48;
+
+    private long[] table;
+    private int bucketMask;
+    private volatile int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public TranspositionTable(){
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param megabytes memory budget of the table, rounded down to a power of two number of buckets, at least 1.
+     */
+    public TranspositionTable(int megabytes){
+        resize(megabytes);
+    }
+
+    //#region Sizing
+    /**
+     * Reallocates the table for a new memory budget, discarding every entry. Must not be called during a search.
+     *
+     * @param megabytes memory budget of the table, at least 1.
+     */
+    public void resize(int megabytes){
+        long bytes = Math.max(1L, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * Long.BYTES));
+        // Java arrays are int indexed
+        buckets = Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS + 1L);
+        this.table = new long[(int)(buckets * BUCKET_LONGS)];
+        this.bucketMask = (int)buckets - 1;
+        this.age = 0;
+        resetCounters();
+    }
+
+    /**
+     * Empties the table, ie. before searching an unrelated game. Must not be called during a search.
+     */
+    public void clear(){
+        Arrays.fill(this.table, 0L);
+        this.age = 0;
+        resetCounters();
+    }
+
+    /**
+     * Starts a new search generation, so entries written by earlier searches are replaced first.
+     */
+    public void newSearch(){
+        this.age = (this.age + 1) & 0xFF;
+    }
+
+    public long getSizeBytes(){
+        return (long)this.table.length * Long.BYTES;
+    }
+    //#endregion
+
+    //#region Probe and store
+    /**
+     * Looks up a position.
+     *
+     * @param key zobrist hash of the position.
+     * @return the data long of the entry, read with the static decoders ({@link move}, {@link score}, {@link depth},<br>
+     * {@link bound}), or 0 if the position is not in the table.
+     */
+    public long probe(long key){
+        this.probes.increment();
+        long[] t = this.table;
+        int base = bucketIndex(key);
+        for (int i = base; i < base + BUCKET_LONGS; i += ENTRY_LONGS){
+            long data = t[i + 1];
+            if ((data != 0) && ((t[i] ^ data) == key)){
+                this.hits.increment();
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param key zobrist hash of the position.
+     * @param move best move found, or the move that caused the cutoff, 0 if none.
+     * @param score score of the position from the point of view of the player to move.
+     * @param depth depth the position was searched to, 0 to 255.
+     * @param bound {@link BOUND_EXACT} if the score is exact, {@link BOUND_LOWER} if it failed high (at least score),<br>
+     * {@link BOUND_UPPER} if it failed low (at most score).
+     * @param ply distance of the position from the root, used to store mate scores relative to the position.
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply){
+        long[] t = this.table;
+        int base = bucketIndex(key);
+        int currentAge = this.age;
+        int replace = base;
+        int replaceValue = Integer.MAX_VALUE;
+        boolean samePosition = false;
+        for (int i = base; i < base + BUCKET_LONGS; i += ENTRY_LONGS){
+            long data = t[i + 1];
+            if (data == 0){
+                if (replaceValue > Integer.MIN_VALUE){
+                    replace = i;
+                    replaceValue = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            if ((t[i] ^ data) == key){
+                replace = i;
+                samePosition = true;
+                // Keep the old move rather than forget it
+                if (move == 0){
+                    move = move(data);
+                }
+                break;
+            }
+            int ageDiff = (currentAge - (int)((data >>> AGE_SHIFT) & 0xFF)) & 0xFF;
+            int value = depth(data) - (8 * ageDiff);
+            if (value < replaceValue){
+                replace = i;
+                replaceValue = value;
+            }
+        }
+        if (!samePosition && (replaceValue != Integer.MIN_VALUE)){
+            this.collisions.increment();
+        }
+
+        long data = (move & MOVE_MASK) |
+                    (((long)(toTableScore(score, ply) & 0xFFFF)) << SCORE_SHIFT) |
+                    (((long)(Math.min(Math.max(depth, 0), 255))) << DEPTH_SHIFT) |
+                    (((long)bound) << BOUND_SHIFT) |
+                    (((long)currentAge) << AGE_SHIFT);
+        t[replace] = key ^ data;
+        t[replace + 1] = data;
+        this.stores.increment();
+    }
+
+    private int bucketIndex(long key){
+        // The low bits are used for the index, the whole key is still verified
+        return ((int)key & this.bucketMask) * BUCKET_LONGS;
+    }
+
+    // Mate scores are made relative to the stored position, so they stay correct when it is reached at another ply
+    private static int toTableScore(int score, int ply){
+        if (score >= Search.MATE_BOUND){
+            return score + ply;
+        }
+        if (score <= -Search.MATE_BOUND){
+            return score - ply;
+        }
+        return score;
+    }
+    //#endregion
+
+    //#region Entry decoders
+    public static int move(long data){
+        return (int)(data & MOVE_MASK);
+    }
+
+    /**
+     * Returns the stored score, with mate scores converted back to distance from the root.
+     *
+     * @param data entry data returned by {@link probe}.
+     * @param ply distance of the probed position from the root.
+     */
+    public static int score(long data, int ply){
+        int score = (short)(data >>> SCORE_SHIFT);
+        if (score >= Search.MATE_BOUND){
+            return score - ply;
+        }
+        if (score <= -Search.MATE_BOUND){
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long data){
+        return (int)((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int)((data >>> BOUND_SHIFT) & 0x3);
+    }
+    //#endregion
+
+    //#region Statistics
+    public long getProbes(){
+        return this.probes.sum();
+    }
+
+    public long getHits(){
+        return this.hits.sum();
+    }
+
+    public long getStores(){
+        return this.stores.sum();
+    }
+
+    /**
+     * Returns the number of stores that evicted another position's entry, the table being too small for the search.
+     */
+    public long getCollisions(){
+        return this.collisions.sum();
+    }
+
+    /**
+     * Returns the permille of the first 1000 buckets' entries written in the current search generation, as reported<br>
+     * by UCI engines.
+     */
+    public int hashfull(){
+        int sampled = Math.min(1000, this.bucketMask + 1) * BUCKET_ENTRIES;
+        int used = 0;
+        for (int i = 0; i < sampled * ENTRY_LONGS; i += ENTRY_LONGS){
+            long data = this.table[i + 1];
+            if ((data != 0) && (((data >>> AGE_SHIFT) & 0xFF) == this.age)){
+                used++;
+            }
+        }
+        return (used * 1000) / sampled;
+    }
+
+    public void resetCounters(){
+        this.probes.reset();
+        this.hits.reset();
+        this.stores.reset();
+        this.collisions.reset();
+    }
+    //#endregion
+
+    @Override
+    public String toString(){
+        return "TranspositionTable " + (getSizeBytes() >> 20) + "MB probes " + getProbes() + " hits " + getHits() +
+               " stores " + getStores() + " collisions " + getCollisions() + " hashfull " + hashfull();
+    }
+}
@@ -28,6 +28,10 @@ import java.util.List;
 import javax.swing.JFrame;
 
 import com.YCorp.chessApp.client.engine.*;
+import com.YCorp.chessApp.client.engine.search.Search;
+import com.YCorp.chessApp.client.engine.search.SearchInfo;
+import com.YCorp.chessApp.client.engine.search.SearchLimits;
+import com.YCorp.chessApp.client.engine.search.TranspositionTable;
 import com.YCorp.chessApp.client.parser.RegexParser;
 import com.YCorp.chessApp.client.exceptions.AlgebraicParseException;
 import com.YCorp.chessApp.server.db.RegexDatabase;
@@ -93,6 +97,10 @@ public class LanternaChess {
     public static final int SIDEBAR_MID_COL = (SIDEBAR_COL + 1) + SIDEBAR_WIDTH/2;
 
     public static final String LINE_FLUSH = " ".repeat(BOARDPANE_WIDTH);
+    // Thinking time per move of the computer opponent
+    public static final long COMPUTER_MOVE_MILLIS = 1000;
+    // Threads searching for the computer opponent, one per core
+    public static final int COMPUTER_THREADS = Runtime.getRuntime().availableProcessors();
 
     public static void ScreenTest(){
         Screen screen = null;
@@ -210,6 +218,16 @@ public class LanternaChess {
                         }
                         break;
                     }
+                    case 3: {
+                        // Player is white against the computer, so the board is never flipped
+                        int restart = 1;
+                        while(restart == 1){
+                            terminal.clearScreen();
+                            // One table per game, kept between computer moves as most positions are searched again
+                            restart = gameLoop(textGraphics, errorGraphics, terminal, false, -1, new TranspositionTable());
+                        }
+                        break;
+                    }
                     case 2:{
                         // Replay loop
                         terminal.clearScreen();
@@ -322,6 +340,13 @@ public class LanternaChess {
     // return 0 == exit/back to menu
     // return 1 == restart
     public static int gameLoop(TextGraphics textGraphics, TextGraphics errorGraphics, Terminal terminal, boolean flipBoard) throws IOException, InterruptedException{
+        return gameLoop(textGraphics, errorGraphics, terminal, flipBoard, 0, null);
+    }
+
+    // computerSign is the sign of the player moved by the computer, 0 for two players at the terminal
+    // computerTable is the computer's transposition table, only used when computerSign isn't 0
+    public static int gameLoop(TextGraphics textGraphics, TextGraphics errorGraphics, Terminal terminal, boolean flipBoard, int computerSign,
+                               TranspositionTable computerTable) throws IOException, InterruptedException{
         Board board = new Board();
 
         boolean inputError = false;
@@ -375,6 +400,13 @@ public class LanternaChess {
                     return 1;
                 }
 
+                if ((computerSign != 0) && (board.getTurnInt() == computerSign)){
+                    drawSearchInfo(textGraphics, terminal, "Computer is thinking...");
+                    currentMove = computerMove(board, computerTable, textGraphics, terminal);
+                    drawSearchInfo(textGraphics, terminal, "");
+                    continue;
+                }
+
                 drawUserPrompt(textGraphics, errorGraphics, board.getTurnInt(), inputError, board.getThreeFold(), board.getFiftyMove());
                 terminal.flush();
 
@@ -412,6 +444,10 @@ public class LanternaChess {
                 }
                 else if (inputString.equalsIgnoreCase("undo")){
                     board.undoLastMove();
+                    // Against the computer, take back its reply as well so the player is to move again
+                    if ((computerSign != 0) && (board.getTurnInt() == computerSign)){
+                        board.undoLastMove();
+                    }
                     terminal.clearScreen();
                     continue;
                 }
@@ -470,6 +506,37 @@ public class LanternaChess {
         } // End while(true) game loop   
     }
 
+    /**
+     * Chooses the computer's move in the current position of the game board, searching a copy of it for<br>
+     * {@link COMPUTER_MOVE_MILLIS} with {@link COMPUTER_THREADS} threads. Every completed search iteration is drawn over<br>
+     * the prompt rows.
+     *
+     * @param board the game board, left unchanged.
+     * @param table transposition table of the game, reused for every computer move of it.
+     * @param textGraphics the graphics the search iterations are drawn with.
+     * @param terminal the terminal flushed after each search iteration.
+     * @return the chosen move, ready to be played with {@link Board#playMove}.
+     */
+    public static Move computerMove(Board board, TranspositionTable table, TextGraphics textGraphics, Terminal terminal){
+        Search search = new Search(board.copy(), table);
+        search.setThreads(COMPUTER_THREADS);
+        search.setListener(info -> drawSearchInfo(textGraphics, terminal, info.toString()));
+        SearchInfo info = search.search(SearchLimits.time(COMPUTER_MOVE_MILLIS));
+        return PackedMove.toMove(info.getBestMove());
+    }
+
+    // Draws text over the prompt rows (16 to INPUT_ROW) while the computer is thinking, wrapped to the board pane and
+    // cut off after the input row. Empty text clears the rows
+    public static void drawSearchInfo(TextGraphics textGraphics, Terminal terminal, String text){
+        int width = BOARDPANE_WIDTH - (INPUT_COL + 1);
+        for (int row = 16; row <= INPUT_ROW; row++){
+            int start = (row - 16) * width;
+            String line = (start < text.length()) ? text.substring(start, Math.min(text.length(), start + width)) : "";
+            textGraphics.putString(INPUT_COL, row, line + " ".repeat(width - line.length()));
+        }
+        safeFlush(terminal);
+    }
+
     public static int menuLoop(TextGraphics textGraphics, TextGraphics errorGraphics, Terminal terminal){
 
         drawMenu(textGraphics, errorGraphics, terminal);
@@ -498,14 +565,16 @@ public class LanternaChess {
         String main = "MAIN MENU";
         String type = "TYPE COMMAND AND ENTER";
         String play = "play";
+        String computer = "computer";
         String replay = "replay";
         String exit = "exit";
 
         textGraphics.putString(MID_COL - (main.length()/2), 8, main);
        
         textGraphics.putString(MID_COL - (play.length()/2), 10, play);
-        textGraphics.putString(MID_COL - (replay.length()/2), 11, replay);
-        textGraphics.putString(MID_COL - (exit.length()/2), 12, exit);
+        textGraphics.putString(MID_COL - (computer.length()/2), 11, computer);
+        textGraphics.putString(MID_COL - (replay.length()/2), 12, replay);
+        textGraphics.putString(MID_COL - (exit.length()/2), 13, exit);
         textGraphics.putString(INPUT_COL, INPUT_ROW - 1, type);
 
         try{
@@ -525,7 +594,8 @@ public class LanternaChess {
         }
     }
 
-    // play = single player game
+    // play = two player game
+    // computer = game against the computer
     // exit
     // replay
     public static int queryMenuInput(TextGraphics textGraphics, TextGraphics errorGraphics, Terminal terminal){
@@ -536,6 +606,9 @@ public class LanternaChess {
             if (input.equalsIgnoreCase("play")){
                 return 1;
             }
+            else if (input.equalsIgnoreCase("computer")){
+                return 3;
+            }
             else if (input.equalsIgnoreCase("replay")){
                 return 2;
             }
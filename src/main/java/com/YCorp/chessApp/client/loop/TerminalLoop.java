@@ -77,9 +77,7 @@ public class TerminalLoop {
             board.playMove(currentMove);
             board.updateState(board.getTurnInt(), validMoves);
 
-            // This invokes another valid move generation, perhaps create a local variable for Board
-            // That holds the current valid moves to avoid re-generation of valid moves
-            // which is quite expensive
+            // updateState already generated these moves, Board returns its cached list instead of regenerating
            
             validMoves = board.generateValidMoves(board.getTurnInt());
             int endGame = board.evaluateGameEndConditions(validMoves);
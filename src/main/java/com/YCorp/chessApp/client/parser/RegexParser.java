@@ -27,6 +27,8 @@ public class RegexParser {
     public static String MOVE_BLOCK_REGEX = "(?s)\\n1\\..*?[ ]+[01][.\\/]?\\d?-[01][.\\/]?\\d?";
     public static String META_FIELD_REGEX = "\n?\\[(.*) \"(.*)\"\\]";
     public static String GAME_BLOCK_REGEX = "(?s)(.*? +[01][.\\/]?\\d?-[01][.\\/]?\\d?)";
+    // Compiled once, validateMove runs for every move of every game
+    private static final Pattern ALGEBRAIC_PATTERN = Pattern.compile(ALGEBRAIC_REGEX);
 
     static {
         PIECE_ID = new HashMap<>();
@@ -470,8 +472,7 @@ public class RegexParser {
 
     public static Move validateMove(String algebraicMove, Board board) throws AlgebraicParseException{
         // Regex setup
-        String moveRegex = RegexParser.ALGEBRAIC_REGEX;
-        Pattern movePattern = Pattern.compile(moveRegex);
+        Pattern movePattern = ALGEBRAIC_PATTERN;
 
      
         //#region loop
@@ -636,8 +637,7 @@ public class RegexParser {
 
     public static ArrayList<Move> validateMove(ArrayList<String> algebraicList, Board board) throws AlgebraicParseException{
         // Regex setup
-        String moveRegex = RegexParser.ALGEBRAIC_REGEX;
-        Pattern movePattern = Pattern.compile(moveRegex);
+        Pattern movePattern = ALGEBRAIC_PATTERN;
         ArrayList<Move> retArray = new ArrayList<>();
         ArrayList<int[]> validMoves = board.generateValidMoves(board.getTurnInt());
 
@@ -0,0 +1,84 @@
+import com.YCorp.chessApp.client.engine.Board;
+import com.YCorp.chessApp.client.engine.PackedMove;
+import com.YCorp.chessApp.client.engine.search.Evaluator;
+import com.YCorp.chessApp.client.engine.search.StaticExchange;
+
+/**
+ * Reference check for the static exchange evaluation of {@link StaticExchange}.
+ *
+ * <p>
+ * Every entry of {@link REFERENCE_EXCHANGES} is a position, a move in long algebraic notation and the exchange result<br>
+ * worked out by hand, so a change to attacker lookup or the swap list shows up as a wrong result on a named case.<br>
+ * Expected values are written in terms of {@link Evaluator#PIECE_VALUES}, so they follow any tuning of the piece values.
+ * </p>
+ *
+ * <p>
+ * Usage:<br>
+ * <code>StaticExchangeCheck</code> evaluates every reference exchange, printing each result against its expected value.
+ * </p>
+ */
+public class StaticExchangeCheck {
+    private static final int P = Evaluator.PIECE_VALUES[1];
+    private static final int N = Evaluator.PIECE_VALUES[2];
+    private static final int R = Evaluator.PIECE_VALUES[4];
+    private static final int Q = Evaluator.PIECE_VALUES[5];
+
+    /**
+     * Reference exchanges as {name, FEN, move, expected result for the player making the move}.
+     */
+    public static final Object[][] REFERENCE_EXCHANGES = new Object[][]{
+        {"undefended pawn", "1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5", P},
+        {"knight for pawn", "1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5", P - N},
+        {"pawn trade", "4k3/8/2p5/3p4/4P3/8/8/4K3 w - - 0 1", "e4d5", 0},
+        {"pawn takes knight", "4k3/8/2p5/3n4/4P3/8/8/4K3 w - - 0 1", "e4d5", N - P},
+        {"queen for pawn", "3qk3/8/8/3p4/8/8/8/3QK3 w - - 0 1", "d1d5", P - Q},
+        {"x-ray, defender wins", "3rk3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5", P - R},
+        {"x-ray, attacker wins", "4k3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5", P},
+        {"en passent", "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", P},
+        {"promotion", "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", Q - P},
+        {"promotion, rook takes", "r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8q", -P}
+    };
+
+    public static void main(String[] args){
+        runReferenceSuite();
+    }
+
+    /**
+     * Evaluates every exchange in {@link REFERENCE_EXCHANGES}, printing each result against its expected value.
+     *
+     * @return true if every result matched.
+     */
+    public static boolean runReferenceSuite(){
+        boolean allPassed = true;
+        for (Object[] exchange : REFERENCE_EXCHANGES){
+            String name = (String) exchange[0];
+            String uci = (String) exchange[2];
+            int expected = (Integer) exchange[3];
+            Board board = new Board((String) exchange[1]);
+            int move = findMove(board, uci);
+            if (move == 0){
+                allPassed = false;
+                System.out.println(String.format("  %-22s %s: FAIL (not a legal move)", name, uci));
+                continue;
+            }
+            int result = new StaticExchange(board).evaluate(move);
+            boolean passed = result == expected;
+            allPassed &= passed;
+            System.out.println(String.format("  %-22s %s: %6d %s", name, uci, result, passed ? "OK" : "FAIL (expected " + expected + ")"));
+        }
+        System.out.println(allPassed ? "All passed" : "FAILED");
+        return allPassed;
+    }
+
+    // Returns the legal move of the player to move with the provided long algebraic notation, 0 if there is none
+    private static int findMove(Board board, String uci){
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = board.generateValidMoves(board.getTurnInt(), moves);
+        for (int i = 0; i < count; i++){
+            if (PackedMove.toUci(moves[i]).equals(uci)){
+                return moves[i];
+            }
+        }
+        return 0;
+    }
+}